@@ -4,16 +4,35 @@ import org.bukkit.plugin.java.JavaPlugin;
 import com.standcore.managers.*;
 import com.standcore.commands.*;
 import com.standcore.listeners.*;
+import com.standcore.chat.AdminChatStage;
+import com.standcore.chat.FilterStage;
+import com.standcore.chat.ChatPipeline;
+import com.standcore.chat.FormatStage;
+import com.standcore.chat.MuteStage;
+import com.standcore.chat.RateLimitStage;
+import com.standcore.storage.StorageManager;
 import com.standcore.util.ConfigUtils;
+import com.standcore.util.ConfigWatcher;
+import com.standcore.util.ExpiryScheduler;
 import com.standcore.util.FileUtils;
+import com.standcore.util.MainThreadApplier;
+import com.standcore.util.Settings;
 
 public class StandCore extends JavaPlugin {
     private static StandCore instance;
+    private StorageManager storageManager;
+    private ExpiryScheduler expiryScheduler;
+    private MainThreadApplier mainThreadApplier;
     private GrantsManager grantsManager;
     private SanctionsManager sanctionsManager;
     private StaffModeManager staffModeManager;
     private PermissionsManager permissionsManager;
     private PlaceholderManager placeholderManager;
+    private SessionManager sessionManager;
+    private AltsManager altsManager;
+    private ConfigWatcher configWatcher;
+    private ChatPipeline chatPipeline;
+    private RateLimitStage chatLimiter;
 
     @Override
     public void onEnable() {
@@ -47,21 +66,55 @@ public class StandCore extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
         if (placeholderManager != null) {
             placeholderManager.unregister();
         }
+        if (permissionsManager != null) {
+            permissionsManager.restorePermissibles();
+        }
+        if (storageManager != null) {
+            // Waits for the write-behind journal to drain before closing the stores
+            storageManager.close();
+        }
         getLogger().info("StandCore has been disabled!");
     }
 
     private void initializeManagers() {
+        storageManager = new StorageManager(this);
+        storageManager.init();
+        
+        expiryScheduler = new ExpiryScheduler(this);
+        expiryScheduler.start();
+        mainThreadApplier = new MainThreadApplier(this);
+        mainThreadApplier.start();
+        
         grantsManager = new GrantsManager(this);
         sanctionsManager = new SanctionsManager(this);
         staffModeManager = new StaffModeManager(this);
         permissionsManager = new PermissionsManager(this);
         placeholderManager = new PlaceholderManager(this);
+        sessionManager = new SessionManager(this);
+        altsManager = new AltsManager(this);
+        
+        Settings.AutoReload autoReload = ConfigUtils.getSettings().getAutoReload();
+        if (autoReload.isEnabled()) {
+            configWatcher = new ConfigWatcher(this, autoReload.getDebounceMs());
+            configWatcher.watch("ranks.yml", () -> {
+                int players = permissionsManager.reloadRanks();
+                if (players >= 0) {
+                    getLogger().info("Reloaded ranks.yml, re-applying ranks to " + players + " players");
+                }
+            });
+            configWatcher.start();
+        }
     }
 
     private void registerCommands() {
+        getCommand("standcore").setExecutor(new StandCoreCommand(this));
+        
         // Staff commands
         AdminChatCommand adminChatCmd = new AdminChatCommand(this);
         getCommand("adminchat").setExecutor(adminChatCmd);
@@ -87,12 +140,24 @@ public class StandCore extends JavaPlugin {
         getCommand("unmute").setExecutor(new UnmuteCommand(this));
         getCommand("kick").setExecutor(new KickCommand(this));
         getCommand("warn").setExecutor(new WarnCommand(this));
+        getCommand("banip").setExecutor(new BanIpCommand(this));
+        getCommand("unbanip").setExecutor(new UnbanIpCommand(this));
+        getCommand("alts").setExecutor(new AltsCommand(this));
+        getCommand("slowchat").setExecutor(new SlowChatCommand(this));
     }
 
     private void registerListeners() {
         getServer().getPluginManager().registerEvents(new InventoryClickListener(this), this);
+        getServer().getPluginManager().registerEvents(new PreLoginListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerJoinListener(this), this);
-        getServer().getPluginManager().registerEvents(new ChatListener(this), this);
+        chatPipeline = new ChatPipeline();
+        chatPipeline.addStage(new MuteStage(sanctionsManager));
+        chatLimiter = new RateLimitStage(this);
+        chatPipeline.addStage(chatLimiter);
+        chatPipeline.addStage(new AdminChatStage(this, (AdminChatCommand) getCommand("adminchat").getExecutor()));
+        chatPipeline.addStage(new FilterStage(this));
+        chatPipeline.addStage(new FormatStage(permissionsManager));
+        getServer().getPluginManager().registerEvents(new ChatListener(chatPipeline), this);
         getServer().getPluginManager().registerEvents(new PlayerMoveListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerInteractListener(this), this);
     }
@@ -101,6 +166,26 @@ public class StandCore extends JavaPlugin {
         return instance;
     }
 
+    public StorageManager getStorageManager() {
+        return storageManager;
+    }
+
+    public ExpiryScheduler getExpiryScheduler() {
+        return expiryScheduler;
+    }
+
+    public ChatPipeline getChatPipeline() {
+        return chatPipeline;
+    }
+
+    public RateLimitStage getChatLimiter() {
+        return chatLimiter;
+    }
+
+    public MainThreadApplier getMainThreadApplier() {
+        return mainThreadApplier;
+    }
+
     public GrantsManager getGrantsManager() {
         return grantsManager;
     }
@@ -120,4 +205,12 @@ public class StandCore extends JavaPlugin {
     public PlaceholderManager getPlaceholderManager() {
         return placeholderManager;
     }
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    public AltsManager getAltsManager() {
+        return altsManager;
+    }
 }
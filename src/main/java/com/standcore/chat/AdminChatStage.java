@@ -0,0 +1,54 @@
+package com.standcore.chat;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import com.standcore.StandCore;
+import com.standcore.commands.AdminChatCommand;
+import com.standcore.util.ConfigUtils;
+
+/**
+ * Sends messages of players with admin chat toggled to staff instead of public chat.
+ * "!name message" sends a direct message to one staff member.
+ */
+public class AdminChatStage implements ChatStage {
+    public static final String NAME = "adminchat";
+
+    private final StandCore plugin;
+    private final AdminChatCommand adminChat;
+
+    public AdminChatStage(StandCore plugin, AdminChatCommand adminChat) {
+        this.plugin = plugin;
+        this.adminChat = adminChat;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean handle(AsyncPlayerChatEvent event) {
+        Player player = event.getPlayer();
+        if (!adminChat.hasAdminChatToggled(player)) return true;
+
+        event.setCancelled(true);
+        String message = event.getMessage();
+
+        if (!message.startsWith("!")) {
+            adminChat.broadcastAdminMessage(player.getName(), message);
+            return false;
+        }
+
+        // Direct message, the target's name runs up to the first space
+        message = message.substring(1);
+        int space = message.indexOf(' ');
+        Player target = space > 0 ? plugin.getServer().getPlayer(message.substring(0, space)) : null;
+
+        if (target != null && target.hasPermission("standcore.adminchat.see")) {
+            adminChat.sendDirectMessage(player, target, message.substring(space + 1));
+        } else {
+            player.sendMessage(ConfigUtils.getMessage("adminchat.invalid-target"));
+        }
+        return false;
+    }
+}
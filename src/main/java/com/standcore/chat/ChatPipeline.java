@@ -0,0 +1,123 @@
+package com.standcore.chat;
+
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs chat messages through an ordered list of stages, timing each one. The list is
+ * copied on change and read without locking, so stages can be added while chat runs.
+ */
+public class ChatPipeline {
+    private volatile Stage[] stages;
+
+    public ChatPipeline() {
+        this.stages = new Stage[0];
+    }
+
+    /**
+     * Adds a stage after the existing ones
+     * @param stage The stage
+     */
+    public synchronized void addStage(ChatStage stage) {
+        Stage[] next = Arrays.copyOf(stages, stages.length + 1);
+        next[stages.length] = new Stage(stage);
+        stages = next;
+    }
+
+    /**
+     * Adds a stage in front of another one
+     * @param name The name of the stage to add it before
+     * @param stage The stage
+     * @throws IllegalArgumentException If there is no stage with that name
+     */
+    public synchronized void addStageBefore(String name, ChatStage stage) {
+        for (int i = 0; i < stages.length; i++) {
+            if (stages[i].stage.getName().equals(name)) {
+                Stage[] next = new Stage[stages.length + 1];
+                System.arraycopy(stages, 0, next, 0, i);
+                next[i] = new Stage(stage);
+                System.arraycopy(stages, i, next, i + 1, stages.length - i);
+                stages = next;
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No chat stage named " + name);
+    }
+
+    /**
+     * Runs a message through the stages until one of them deals with it
+     * @param event The chat event
+     */
+    public void process(AsyncPlayerChatEvent event) {
+        for (Stage stage : stages) {
+            long start = System.nanoTime();
+            boolean proceed;
+            try {
+                proceed = stage.stage.handle(event);
+            } finally {
+                stage.record(System.nanoTime() - start);
+            }
+
+            if (!proceed) {
+                stage.stopped.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The stages in order, with their counters
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(stages)));
+    }
+
+    /**
+     * A stage and its latency counters
+     */
+    public static final class Stage {
+        private final ChatStage stage;
+        private final LongAdder calls;
+        private final LongAdder nanos;
+        private final LongAdder stopped;
+        private final AtomicLong maxNanos;
+
+        private Stage(ChatStage stage) {
+            this.stage = stage;
+            this.calls = new LongAdder();
+            this.nanos = new LongAdder();
+            this.stopped = new LongAdder();
+            this.maxNanos = new AtomicLong();
+        }
+
+        private void record(long elapsed) {
+            calls.increment();
+            nanos.add(elapsed);
+            long max = maxNanos.get();
+            while (elapsed > max && !maxNanos.compareAndSet(max, elapsed)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public String getName() { return stage.getName(); }
+        public ChatStage getStage() { return stage; }
+        public long getCalls() { return calls.sum(); }
+
+        /**
+         * @return The number of messages this stage handled without passing them on
+         */
+        public long getStopped() { return stopped.sum(); }
+        public long getMaxNanos() { return maxNanos.get(); }
+
+        public long getAverageNanos() {
+            long count = calls.sum();
+            return count == 0 ? 0 : nanos.sum() / count;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.standcore.chat;
+
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+
+/**
+ * One step of the chat pipeline. Stages run on the async chat threads, so anything they
+ * read per message should be prepared up front or be safe to read concurrently.
+ */
+public interface ChatStage {
+
+    /**
+     * @return The stage's name, shown in /standcore stats
+     */
+    String getName();
+
+    /**
+     * Handles a chat message
+     * @param event The chat event
+     * @return true to pass the message on to the next stage, false if this stage dealt with it
+     */
+    boolean handle(AsyncPlayerChatEvent event);
+}
@@ -0,0 +1,63 @@
+package com.standcore.chat;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import com.standcore.StandCore;
+import com.standcore.util.ChatFilter;
+import com.standcore.util.ConfigUtils;
+
+import java.util.UUID;
+
+/**
+ * Checks messages against the banned terms in settings.chat.filter. Depending on the
+ * worst term found the message is censored, dropped, or dropped with a warning. Staff
+ * with standcore.chat.filter.bypass are never filtered.
+ */
+public class FilterStage implements ChatStage {
+    public static final String NAME = "filter";
+
+    private static final UUID FILTER_ID = new UUID(0, 0);
+
+    private final StandCore plugin;
+
+    public FilterStage(StandCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean handle(AsyncPlayerChatEvent event) {
+        ChatFilter filter = ConfigUtils.getSettings().getChat().getFilter();
+        if (filter.size() == 0) return true;
+
+        Player player = event.getPlayer();
+        if (player.hasPermission("standcore.chat.filter.bypass")) return true;
+
+        ChatFilter.Result result = filter.apply(event.getMessage());
+        if (result.getAction() == null) return true;
+
+        switch (result.getAction()) {
+            case CENSOR:
+                event.setMessage(result.getMessage());
+                return true;
+            case WARN:
+                // Sanctions are applied on the main thread like the warn command does
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) {
+                        plugin.getSanctionsManager().warn(player, "CONSOLE", FILTER_ID,
+                            ConfigUtils.getMessage("chat.filter.warn-reason"));
+                    }
+                });
+                break;
+            default:
+                player.sendMessage(ConfigUtils.getMessage("chat.filter.blocked"));
+                break;
+        }
+        event.setCancelled(true);
+        return false;
+    }
+}
@@ -0,0 +1,70 @@
+package com.standcore.chat;
+
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import com.standcore.managers.PermissionsManager;
+import com.standcore.managers.PermissionsManager.RankData;
+import com.standcore.managers.RankRegistry;
+import com.standcore.util.ConfigUtils;
+import com.standcore.util.Settings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sets the chat format of the sender's rank. Formats are built for every rank at once
+ * whenever the ranks or settings are reloaded, a message only looks its rank up.
+ */
+public class FormatStage implements ChatStage {
+    public static final String NAME = "format";
+
+    private final PermissionsManager permissionsManager;
+    private volatile Formats formats;
+
+    public FormatStage(PermissionsManager permissionsManager) {
+        this.permissionsManager = permissionsManager;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean handle(AsyncPlayerChatEvent event) {
+        RankRegistry registry = permissionsManager.getRegistry();
+        Settings settings = ConfigUtils.getSettings();
+
+        Formats current = formats;
+        if (current == null || current.registry != registry || current.settings != settings) {
+            // Two threads may build the same formats after a reload, either result is fine
+            current = new Formats(registry, settings);
+            formats = current;
+        }
+
+        String format = current.byRank.get(permissionsManager.getPlayerRank(event.getPlayer()).toLowerCase());
+        event.setFormat(format != null ? format : current.noRank);
+        return true;
+    }
+
+    /**
+     * The chat format of every rank, for one version of the ranks and settings
+     */
+    private static final class Formats {
+        private final RankRegistry registry;
+        private final Settings settings;
+        private final Map<String, String> byRank;
+        private final String noRank;
+
+        private Formats(RankRegistry registry, Settings settings) {
+            this.registry = registry;
+            this.settings = settings;
+            this.byRank = new HashMap<>();
+
+            String format = settings.getChat().getFormat();
+            for (Map.Entry<String, RankData> rank : registry.getRanks().entrySet()) {
+                byRank.put(rank.getKey(), format.replace("%prefix%", rank.getValue().getPrefix()));
+            }
+            this.noRank = format.replace("%prefix%", "");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.standcore.chat;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import com.standcore.managers.SanctionsManager;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.util.ConfigUtils;
+
+/**
+ * Stops muted players from chatting and tells them why
+ */
+public class MuteStage implements ChatStage {
+    public static final String NAME = "mute";
+
+    private final SanctionsManager sanctionsManager;
+
+    public MuteStage(SanctionsManager sanctionsManager) {
+        this.sanctionsManager = sanctionsManager;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean handle(AsyncPlayerChatEvent event) {
+        Player player = event.getPlayer();
+        if (!sanctionsManager.isMuted(player)) return true;
+
+        // Lifted by the expiry scheduler in between, let the message through
+        Sanction mute = sanctionsManager.getActiveMute(player);
+        if (mute == null) return true;
+
+        player.sendMessage(ConfigUtils.getMessage("sanctions.mute.message",
+            "staff", mute.getStaff(),
+            "reason", mute.getReason(),
+            "duration", ConfigUtils.formatDuration(mute.getRemaining())
+        ));
+        event.setCancelled(true);
+        return false;
+    }
+}
@@ -0,0 +1,136 @@
+package com.standcore.chat;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import com.standcore.StandCore;
+import com.standcore.util.ConfigUtils;
+import com.standcore.util.Settings;
+import com.standcore.util.TokenBuckets;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how fast each player can chat with a token bucket, and enforces /slowchat.
+ * Players who keep hitting the limit are muted. Staff with standcore.chat.bypass are
+ * never limited.
+ */
+public class RateLimitStage implements ChatStage {
+    public static final String NAME = "rate-limit";
+
+    private static final UUID LIMITER_ID = new UUID(0, 0);
+    private static final int STRIKE_TIME_BITS = 42;
+    private static final long STRIKE_TIME_MASK = (1L << STRIKE_TIME_BITS) - 1;
+
+    private final StandCore plugin;
+    private final TokenBuckets buckets;
+    private final TokenBuckets slowBuckets;
+    private final Map<UUID, AtomicLong> strikes;
+    private final long epoch;
+    private volatile int slowSeconds;
+
+    public RateLimitStage(StandCore plugin) {
+        this.plugin = plugin;
+        this.buckets = new TokenBuckets();
+        this.slowBuckets = new TokenBuckets();
+        this.strikes = new ConcurrentHashMap<>();
+        this.epoch = System.currentTimeMillis();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean handle(AsyncPlayerChatEvent event) {
+        Player player = event.getPlayer();
+        if (player.hasPermission("standcore.chat.bypass")) return true;
+
+        int slow = slowSeconds;
+        if (slow > 0) {
+            long wait = slowBuckets.tryAcquire(player.getUniqueId(), 1, 1.0 / slow);
+            if (wait > 0) {
+                player.sendMessage(ConfigUtils.getMessage("chat.slow-mode",
+                    "seconds", String.valueOf((wait + 999) / 1000)
+                ));
+                event.setCancelled(true);
+                return false;
+            }
+        }
+
+        Settings.Chat settings = ConfigUtils.getSettings().getChat();
+        if (!settings.isRateLimitEnabled()) return true;
+
+        long wait = buckets.tryAcquire(player.getUniqueId(), settings.getBurst(), settings.getRefillPerSecond());
+        if (wait == 0) return true;
+
+        event.setCancelled(true);
+        if (settings.getMuteAfter() > 0 && strike(player.getUniqueId(), settings)) {
+            // Sanctions are applied on the main thread like the mute command does
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (player.isOnline() && !plugin.getSanctionsManager().isMuted(player)) {
+                    plugin.getSanctionsManager().mute(player, "CONSOLE", LIMITER_ID,
+                        ConfigUtils.getMessage("chat.auto-mute-reason"), settings.getMuteDuration());
+                }
+            });
+        } else {
+            player.sendMessage(ConfigUtils.getMessage("chat.rate-limited",
+                "seconds", String.valueOf((wait + 999) / 1000)
+            ));
+        }
+        return false;
+    }
+
+    /**
+     * Counts a blocked message. The count and the start of its window share one long,
+     * count in the upper bits and time in the lower.
+     * @return true if this strike reached the mute threshold, only one caller sees it
+     */
+    private boolean strike(UUID uuid, Settings.Chat settings) {
+        long now = System.currentTimeMillis() - epoch;
+        AtomicLong state = strikes.computeIfAbsent(uuid, k -> new AtomicLong(now & STRIKE_TIME_MASK));
+
+        while (true) {
+            long current = state.get();
+            long start = current & STRIKE_TIME_MASK;
+            long count = current >>> STRIKE_TIME_BITS;
+            if (now - start > settings.getMuteWindow()) {
+                start = now;
+                count = 0;
+            }
+
+            count++;
+            boolean reached = count >= settings.getMuteAfter();
+            long next = reached ? (now & STRIKE_TIME_MASK) : (count << STRIKE_TIME_BITS) | start;
+            if (state.compareAndSet(current, next)) {
+                return reached;
+            }
+        }
+    }
+
+    /**
+     * Turns slow chat on or off
+     * @param seconds Seconds each player must wait between messages, 0 to turn it off
+     */
+    public void setSlowSeconds(int seconds) {
+        slowSeconds = Math.max(0, seconds);
+        slowBuckets.clear();
+    }
+
+    public int getSlowSeconds() {
+        return slowSeconds;
+    }
+
+    /**
+     * Forgets a player who left
+     * @param uuid The player's UUID
+     */
+    public void forget(UUID uuid) {
+        buckets.remove(uuid);
+        slowBuckets.remove(uuid);
+        strikes.remove(uuid);
+    }
+}
@@ -7,9 +7,9 @@ import org.bukkit.entity.Player;
 import com.standcore.StandCore;
 import com.standcore.util.ConfigUtils;
 
-import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AdminChatCommand implements CommandExecutor {
     private final StandCore plugin;
@@ -17,7 +17,8 @@ public class AdminChatCommand implements CommandExecutor {
     
     public AdminChatCommand(StandCore plugin) {
         this.plugin = plugin;
-        this.toggledPlayers = new HashSet<>();
+        // Read by the async chat threads
+        this.toggledPlayers = ConcurrentHashMap.newKeySet();
     }
     
     @Override
@@ -98,7 +99,7 @@ public class AdminChatCommand implements CommandExecutor {
      * @param sender The sender's name
      * @param message The message
      */
-    private void broadcastAdminMessage(String sender, String message) {
+    public void broadcastAdminMessage(String sender, String message) {
         String format = ConfigUtils.getMessage("adminchat.format",
             "player", sender,
             "message", message
@@ -116,7 +117,7 @@ public class AdminChatCommand implements CommandExecutor {
      * @param target The target
      * @param message The message
      */
-    private void sendDirectMessage(Player sender, Player target, String message) {
+    public void sendDirectMessage(Player sender, Player target, String message) {
         String format = ConfigUtils.getMessage("adminchat.direct-message",
             "player", sender.getName(),
             "target", target.getName(),
@@ -132,7 +133,7 @@ public class AdminChatCommand implements CommandExecutor {
             target.getName() + ": " + message);
         
         // Notify other staff members if configured
-        if (ConfigUtils.getBoolean("config", "settings.adminchat.broadcast-direct-messages", true)) {
+        if (ConfigUtils.getSettings().getChat().isBroadcastDirectMessages()) {
             String spyFormat = ConfigUtils.getMessage("adminchat.direct-message-spy",
                 "player", sender.getName(),
                 "target", target.getName(),
@@ -0,0 +1,74 @@
+package com.standcore.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import com.standcore.StandCore;
+import com.standcore.storage.AddressIndex;
+import com.standcore.util.ConfigUtils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+
+public class AltsCommand implements CommandExecutor {
+    private final StandCore plugin;
+    private final SimpleDateFormat dateFormat;
+    
+    public AltsCommand(StandCore plugin) {
+        this.plugin = plugin;
+        // Logins are kept per UTC day
+        this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+    
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Check permission
+        if (!sender.hasPermission("standcore.alts")) {
+            sender.sendMessage(ConfigUtils.getMessage("general.no-permission"));
+            return true;
+        }
+        
+        // Check arguments
+        if (args.length != 1) {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                "usage", "/alts <player>"
+            ));
+            return true;
+        }
+        
+        String targetName = args[0];
+        Player target = plugin.getServer().getPlayer(targetName);
+        UUID uuid = target != null ? target.getUniqueId() 
+            : plugin.getServer().getOfflinePlayer(targetName).getUniqueId();
+        
+        List<AddressIndex.Alt> alts = plugin.getAltsManager().getAlts(uuid);
+        if (alts.isEmpty()) {
+            sender.sendMessage(ConfigUtils.getMessage("alts.none",
+                "player", targetName
+            ));
+            return true;
+        }
+        
+        sender.sendMessage(ConfigUtils.getMessage("alts.header",
+            "player", targetName,
+            "count", String.valueOf(alts.size()),
+            "cluster", String.valueOf(plugin.getAltsManager().getClusterSize(uuid))
+        ));
+        
+        for (AddressIndex.Alt alt : alts) {
+            boolean banned = plugin.getSanctionsManager().getActiveBan(alt.getUuid()) != null;
+            sender.sendMessage(ConfigUtils.getMessage(banned ? "alts.entry-banned" : "alts.entry",
+                "player", plugin.getAltsManager().getName(alt.getUuid()),
+                "shared", String.valueOf(alt.getSharedAddresses()),
+                "last-seen", dateFormat.format(new Date(alt.getLastSeen()))
+            ));
+        }
+        
+        return true;
+    }
+}
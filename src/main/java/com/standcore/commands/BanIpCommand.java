@@ -0,0 +1,117 @@
+package com.standcore.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import com.standcore.StandCore;
+import com.standcore.storage.AddressIndex;
+import com.standcore.util.ConfigUtils;
+
+public class BanIpCommand implements CommandExecutor {
+    private final StandCore plugin;
+    
+    public BanIpCommand(StandCore plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Check permission
+        if (!sender.hasPermission("standcore.banip")) {
+            sender.sendMessage(ConfigUtils.getMessage("general.no-permission"));
+            return true;
+        }
+        
+        // Check arguments
+        if (args.length < 2) {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                "usage", "/banip <player|address> [duration] <reason>"
+            ));
+            return true;
+        }
+        
+        String target = args[0];
+        String durationStr = "permanent";
+        String reason;
+        
+        // Parse duration and reason
+        if (args.length == 2) {
+            // No duration specified, permanent ban
+            reason = args[1];
+        } else {
+            try {
+                // Try to parse the duration
+                ConfigUtils.parseDuration(args[1]);
+                durationStr = args[1];
+                reason = String.join(" ", args).substring(target.length() + durationStr.length() + 2);
+            } catch (IllegalArgumentException e) {
+                // If duration parsing fails, assume it's part of the reason
+                reason = String.join(" ", args).substring(target.length() + 1);
+            }
+        }
+        
+        // Check if sender is a player and target has higher rank
+        if (sender instanceof Player) {
+            Player player = (Player) sender;
+            Player targetPlayer = plugin.getServer().getPlayer(target);
+            
+            if (targetPlayer != null) {
+                String playerRank = plugin.getPermissionsManager().getPlayerRank(player);
+                String targetRank = plugin.getPermissionsManager().getPlayerRank(targetPlayer);
+                
+                int playerWeight = plugin.getPermissionsManager().getRank(playerRank).getWeight();
+                int targetWeight = plugin.getPermissionsManager().getRank(targetRank).getWeight();
+                
+                if (targetWeight >= playerWeight && !player.hasPermission("standcore.ban.override")) {
+                    player.sendMessage(ConfigUtils.getMessage("general.cannot-target-higher-rank"));
+                    return true;
+                }
+            }
+        }
+        
+        // Parse duration
+        long duration;
+        try {
+            duration = durationStr.equalsIgnoreCase("permanent") ? 
+                -1 : ConfigUtils.parseDuration(durationStr);
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-duration"));
+            return true;
+        }
+        
+        // Resolve the address
+        Long address = plugin.getSanctionsManager().resolveAddress(target);
+        if (address == null) {
+            sender.sendMessage(ConfigUtils.getMessage("sanctions.banip.unknown-address",
+                "player", target
+            ));
+            return true;
+        }
+        
+        // Apply ban
+        if (sender instanceof Player) {
+            plugin.getSanctionsManager().banAddress(target, address, (Player) sender, reason, duration);
+        } else {
+            // Create a fake "CONSOLE" player for the ban
+            Player console = new org.bukkit.craftbukkit.v1_8_R3.entity.CraftPlayer(
+                plugin.getServer(),
+                new com.mojang.authlib.GameProfile(
+                    java.util.UUID.randomUUID(),
+                    "CONSOLE"
+                )
+            ) {};
+            plugin.getSanctionsManager().banAddress(target, address, console, reason, duration);
+        }
+        
+        // Send confirmation message
+        sender.sendMessage(ConfigUtils.getMessage("sanctions.banip.success",
+            "player", target,
+            "address", AddressIndex.format(address),
+            "reason", reason,
+            "duration", ConfigUtils.formatDuration(duration)
+        ));
+        
+        return true;
+    }
+}
@@ -19,9 +19,7 @@ public class GrantsHistoryCommand implements CommandExecutor {
     
     public GrantsHistoryCommand(StandCore plugin) {
         this.plugin = plugin;
-        this.dateFormat = new SimpleDateFormat(
-            ConfigUtils.getString("config", "settings.date-format", "dd/MM/yyyy HH:mm:ss")
-        );
+        this.dateFormat = new SimpleDateFormat(ConfigUtils.getSettings().getDateFormat());
     }
     
     @Override
@@ -0,0 +1,54 @@
+package com.standcore.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import com.standcore.StandCore;
+import com.standcore.util.ConfigUtils;
+
+public class SlowChatCommand implements CommandExecutor {
+    private final StandCore plugin;
+    
+    public SlowChatCommand(StandCore plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Check permission
+        if (!sender.hasPermission("standcore.slowchat")) {
+            sender.sendMessage(ConfigUtils.getMessage("general.no-permission"));
+            return true;
+        }
+        
+        // Check arguments
+        int seconds;
+        try {
+            seconds = args.length == 1 ? Integer.parseInt(args[0]) : -1;
+        } catch (NumberFormatException e) {
+            seconds = -1;
+        }
+        if (seconds < 0) {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                "usage", "/slowchat <seconds>"
+            ));
+            return true;
+        }
+        
+        plugin.getChatLimiter().setSlowSeconds(seconds);
+        
+        // Announce the change
+        if (seconds == 0) {
+            plugin.getServer().broadcastMessage(ConfigUtils.getMessage("chat.slowchat.disabled",
+                "staff", sender.getName()
+            ));
+        } else {
+            plugin.getServer().broadcastMessage(ConfigUtils.getMessage("chat.slowchat.enabled",
+                "seconds", String.valueOf(seconds),
+                "staff", sender.getName()
+            ));
+        }
+        
+        return true;
+    }
+}
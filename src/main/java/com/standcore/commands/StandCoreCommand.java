@@ -0,0 +1,210 @@
+package com.standcore.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import com.standcore.StandCore;
+import com.standcore.chat.ChatPipeline;
+import com.standcore.storage.BanFilter;
+import com.standcore.storage.LegacyMigration;
+import com.standcore.storage.StorageType;
+import com.standcore.storage.WriteBehindJournal;
+import com.standcore.util.ConfigUtils;
+import com.standcore.util.HistoryCache;
+import com.standcore.util.MainThreadApplier;
+import com.standcore.util.TeamUpdateQueue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StandCoreCommand implements CommandExecutor {
+    private static final String USAGE = "/standcore <stats|reload [ranks]|migrate <sqlite|log>>";
+
+    private final StandCore plugin;
+    private final AtomicBoolean migrating;
+
+    public StandCoreCommand(StandCore plugin) {
+        this.plugin = plugin;
+        this.migrating = new AtomicBoolean();
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Check permission
+        if (!sender.hasPermission("standcore.admin")) {
+            sender.sendMessage(ConfigUtils.getMessage("general.no-permission"));
+            return true;
+        }
+
+        // Check arguments
+        if (args.length < 1) {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                "usage", USAGE
+            ));
+            return true;
+        }
+
+        switch (args[0].toLowerCase()) {
+            case "stats":
+                sendStats(sender);
+                break;
+
+            case "reload":
+                reload(sender, args);
+                break;
+
+            case "migrate":
+                migrate(sender, args);
+                break;
+
+            default:
+                sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                    "usage", USAGE
+                ));
+                break;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reloads every config file, or only ranks.yml. Nothing changes if the new files are invalid.
+     * @param sender The command sender
+     * @param args The command arguments
+     */
+    private void reload(CommandSender sender, String[] args) {
+        List<String> problems;
+        if (args.length < 2) {
+            problems = ConfigUtils.reloadConfigs();
+        } else if (args[1].equalsIgnoreCase("ranks")) {
+            problems = ConfigUtils.reloadConfig("ranks");
+        } else {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                "usage", "/standcore reload [ranks]"
+            ));
+            return;
+        }
+
+        if (!problems.isEmpty()) {
+            sender.sendMessage(ConfigUtils.getMessage("standcore.reload.invalid",
+                "count", String.valueOf(problems.size())
+            ));
+            for (String problem : problems) {
+                sender.sendMessage(ConfigUtils.getMessage("standcore.reload.problem",
+                    "problem", problem
+                ));
+            }
+            return;
+        }
+
+        int players = plugin.getPermissionsManager().refreshRanks();
+        sender.sendMessage(ConfigUtils.getMessage(args.length < 2 ? "standcore.reload.all" : "standcore.reload.ranks",
+            "ranks", String.valueOf(plugin.getPermissionsManager().getRanks().size()),
+            "players", String.valueOf(players)
+        ));
+    }
+
+    /**
+     * Starts copying the legacy YAML data into another backend
+     * @param sender The command sender
+     * @param args The command arguments
+     */
+    private void migrate(CommandSender sender, String[] args) {
+        // Unknown names parse as YAML, which is the source and never a valid target
+        StorageType target = args.length < 2 ? StorageType.YAML : StorageType.fromString(args[1]);
+        if (target == StorageType.YAML) {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                "usage", "/standcore migrate <sqlite|log>"
+            ));
+            return;
+        }
+
+        if (target == plugin.getStorageManager().getType()) {
+            sender.sendMessage(ConfigUtils.getMessage("standcore.migrate.target-in-use",
+                "target", target.name()
+            ));
+            return;
+        }
+
+        if (!migrating.compareAndSet(false, true)) {
+            sender.sendMessage(ConfigUtils.getMessage("standcore.migrate.already-running"));
+            return;
+        }
+
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                new LegacyMigration(plugin, target, sender).run();
+            } finally {
+                migrating.set(false);
+            }
+        });
+    }
+
+    /**
+     * Sends storage and cache statistics
+     * @param sender The command sender
+     */
+    private void sendStats(CommandSender sender) {
+        WriteBehindJournal journal = plugin.getStorageManager().getJournal();
+
+        sender.sendMessage(ConfigUtils.getMessage("standcore.stats.header"));
+        sender.sendMessage(ConfigUtils.getMessage("standcore.stats.storage",
+            "type", plugin.getStorageManager().getType().name(),
+            "pending", journal == null ? "-" : String.valueOf(journal.getPendingCount())
+        ));
+        sendCacheStats(sender, "Sanctions", plugin.getSanctionsManager().getHistoryCache());
+        sendCacheStats(sender, "Grants", plugin.getGrantsManager().getHistoryCache());
+
+        BanFilter banFilter = plugin.getStorageManager().getActiveIndex().getBanFilter();
+        sender.sendMessage(ConfigUtils.getMessage("standcore.stats.ban-filter",
+            "entries", String.valueOf(banFilter.size()),
+            "probes", String.valueOf(banFilter.getProbes()),
+            "false-positives", String.valueOf(banFilter.getFalsePositives()),
+            "rate", String.format("%.2f", banFilter.getFalsePositiveRate() * 100),
+            "expected", String.format("%.2f", banFilter.getExpectedFalsePositiveRate() * 100),
+            "rebuilds", String.valueOf(banFilter.getRebuilds())
+        ));
+
+        MainThreadApplier applier = plugin.getMainThreadApplier();
+        sender.sendMessage(ConfigUtils.getMessage("standcore.stats.applier",
+            "pending", String.valueOf(applier.getPending()),
+            "applied", String.valueOf(applier.getApplied()),
+            "deferred", String.valueOf(applier.getDeferredTicks())
+        ));
+
+        TeamUpdateQueue teamUpdates = plugin.getPermissionsManager().getTeamUpdates();
+        sender.sendMessage(ConfigUtils.getMessage("standcore.stats.teams",
+            "pending", String.valueOf(teamUpdates.getPending()),
+            "flushed", String.valueOf(teamUpdates.getFlushed()),
+            "coalesced", String.valueOf(teamUpdates.getCoalesced())
+        ));
+
+        for (ChatPipeline.Stage stage : plugin.getChatPipeline().getStages()) {
+            sender.sendMessage(ConfigUtils.getMessage("standcore.stats.chat-stage",
+                "stage", stage.getName(),
+                "calls", String.valueOf(stage.getCalls()),
+                "stopped", String.valueOf(stage.getStopped()),
+                "average", String.format("%.3f", stage.getAverageNanos() / 1_000_000.0),
+                "max", String.format("%.3f", stage.getMaxNanos() / 1_000_000.0)
+            ));
+        }
+    }
+
+    /**
+     * Sends the counters of a history cache
+     * @param sender The command sender
+     * @param name The cache's display name
+     * @param cache The cache
+     */
+    private void sendCacheStats(CommandSender sender, String name, HistoryCache<?, ?> cache) {
+        sender.sendMessage(ConfigUtils.getMessage("standcore.stats.cache",
+            "cache", name,
+            "hits", String.valueOf(cache.getHits()),
+            "misses", String.valueOf(cache.getMisses()),
+            "rate", String.format("%.1f", cache.getHitRate() * 100),
+            "evictions", String.valueOf(cache.getEvictions()),
+            "players", String.valueOf(cache.size()),
+            "records", String.valueOf(cache.getWeight())
+        ));
+    }
+}
@@ -1,6 +1,5 @@
 package com.standcore.commands;
 
-import org.bukkit.BanList;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -34,7 +33,7 @@ public class UnbanCommand implements CommandExecutor {
         String targetName = args[0];
         
         // Check if player is banned
-        if (!plugin.getServer().getBanList(BanList.Type.NAME).isBanned(targetName)) {
+        if (!plugin.getSanctionsManager().isBanned(targetName)) {
             sender.sendMessage(ConfigUtils.getMessage("sanctions.unban.not-banned",
                 "player", targetName
             ));
@@ -61,20 +60,6 @@ public class UnbanCommand implements CommandExecutor {
             "player", targetName
         ));
         
-        // Broadcast if enabled
-        if (ConfigUtils.getBoolean("config", "settings.sanctions.broadcast-unbans", true)) {
-            String staffName = sender instanceof Player ? 
-                sender.getName() : "CONSOLE";
-            
-            plugin.getServer().broadcast(
-                ConfigUtils.getMessage("sanctions.unban.broadcast",
-                    "player", targetName,
-                    "staff", staffName
-                ),
-                "standcore.sanctions.see"
-            );
-        }
-        
         // Log to console
         plugin.getLogger().info(sender.getName() + " unbanned " + targetName);
         
@@ -0,0 +1,71 @@
+package com.standcore.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import com.standcore.StandCore;
+import com.standcore.storage.AddressIndex;
+import com.standcore.util.ConfigUtils;
+
+public class UnbanIpCommand implements CommandExecutor {
+    private final StandCore plugin;
+    
+    public UnbanIpCommand(StandCore plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Check permission
+        if (!sender.hasPermission("standcore.unbanip")) {
+            sender.sendMessage(ConfigUtils.getMessage("general.no-permission"));
+            return true;
+        }
+        
+        // Check arguments
+        if (args.length != 1) {
+            sender.sendMessage(ConfigUtils.getMessage("general.invalid-args",
+                "usage", "/unbanip <player|address>"
+            ));
+            return true;
+        }
+        
+        String target = args[0];
+        
+        // Check if the address is banned
+        Long address = plugin.getSanctionsManager().resolveAddress(target);
+        if (address == null || plugin.getSanctionsManager().getAddressBan(address) == null) {
+            sender.sendMessage(ConfigUtils.getMessage("sanctions.unbanip.not-banned",
+                "player", target
+            ));
+            return true;
+        }
+        
+        // Remove ban
+        if (sender instanceof Player) {
+            plugin.getSanctionsManager().unbanAddress(target, address, (Player) sender);
+        } else {
+            // Create a fake "CONSOLE" player for the unban
+            Player console = new org.bukkit.craftbukkit.v1_8_R3.entity.CraftPlayer(
+                plugin.getServer(),
+                new com.mojang.authlib.GameProfile(
+                    java.util.UUID.randomUUID(),
+                    "CONSOLE"
+                )
+            ) {};
+            plugin.getSanctionsManager().unbanAddress(target, address, console);
+        }
+        
+        // Send confirmation message
+        sender.sendMessage(ConfigUtils.getMessage("sanctions.unbanip.success",
+            "player", target,
+            "address", AddressIndex.format(address)
+        ));
+        
+        // Log to console
+        plugin.getLogger().info(sender.getName() + " unbanned address " + AddressIndex.format(address));
+        
+        return true;
+    }
+}
@@ -49,7 +49,7 @@ public class VanishCommand implements CommandExecutor {
             );
             
             // Update player's display name to show vanished status
-            if (ConfigUtils.getBoolean("config", "settings.staff-mode.show-vanished-tag", true)) {
+            if (ConfigUtils.getSettings().getStaffMode().isShowVanishedTag()) {
                 String prefix = plugin.getPermissionsManager().getPrefix(player);
                 player.setDisplayName(ConfigUtils.color(prefix + "&7[V] " + player.getName()));
                 player.setPlayerListName(player.getDisplayName());
@@ -6,6 +6,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import com.standcore.StandCore;
 import com.standcore.util.ConfigUtils;
+import com.standcore.util.Settings;
 
 public class WarnCommand implements CommandExecutor {
     private final StandCore plugin;
@@ -84,18 +85,15 @@ public class WarnCommand implements CommandExecutor {
         ));
         
         // Check for auto-punishments if configured
-        int warnCount = plugin.getSanctionsManager().getSanctionHistory(target.getName()).stream()
-            .filter(s -> s.getType() == SanctionsManager.SanctionType.WARN)
-            .count();
+        int warnCount = plugin.getSanctionsManager().getSanctionCounts(target.getName())
+            .getCount(SanctionsManager.SanctionType.WARN);
         
         // Get auto-punishment configuration
-        if (ConfigUtils.getBoolean("config", "settings.sanctions.auto-punish.enabled", false)) {
-            int muteThreshold = ConfigUtils.getInt("config", 
-                "settings.sanctions.auto-punish.warn-count-for-mute", -1);
-            int kickThreshold = ConfigUtils.getInt("config", 
-                "settings.sanctions.auto-punish.warn-count-for-kick", -1);
-            int banThreshold = ConfigUtils.getInt("config", 
-                "settings.sanctions.auto-punish.warn-count-for-ban", -1);
+        Settings.Sanctions settings = ConfigUtils.getSettings().getSanctions();
+        if (settings.isAutoPunishEnabled()) {
+            int muteThreshold = settings.getWarnsForMute();
+            int kickThreshold = settings.getWarnsForKick();
+            int banThreshold = settings.getWarnsForBan();
             
             String autoPunishReason = ConfigUtils.getMessage("sanctions.auto-punish.reason",
                 "count", String.valueOf(warnCount)
@@ -121,10 +119,7 @@ public class WarnCommand implements CommandExecutor {
                 }
             } else if (muteThreshold > 0 && warnCount >= muteThreshold) {
                 // Auto-mute
-                long muteDuration = ConfigUtils.parseDuration(
-                    ConfigUtils.getString("config", 
-                        "settings.sanctions.auto-punish.mute-duration", "1h")
-                );
+                long muteDuration = settings.getAutoMuteDuration();
                 
                 if (sender instanceof Player) {
                     plugin.getSanctionsManager().mute(target, (Player) sender, 
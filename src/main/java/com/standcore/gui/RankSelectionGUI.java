@@ -9,7 +9,9 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import com.standcore.StandCore;
 import com.standcore.managers.PermissionsManager.RankData;
+import com.standcore.managers.RankRegistry;
 import com.standcore.util.ConfigUtils;
+import com.standcore.util.Settings;
 
 import java.util.*;
 
@@ -29,21 +31,17 @@ public class RankSelectionGUI {
      */
     public void openRankSelection(Player staff, Player target) {
         int size = 54; // 6 rows
-        Inventory inv = Bukkit.createInventory(null, size, 
-            ConfigUtils.getString("config", "settings.grants.gui.title", "&8Grant Menu")
-        );
+        Settings settings = ConfigUtils.getSettings();
+        Inventory inv = Bukkit.createInventory(null, size, settings.getGrants().getMenuTitle());
         
         // Get all ranks sorted by weight
-        List<RankData> ranks = new ArrayList<>(plugin.getPermissionsManager().getRanks().values());
-        ranks.sort((r1, r2) -> Integer.compare(r2.getWeight(), r1.getWeight()));
+        RankRegistry registry = plugin.getPermissionsManager().getRegistry();
+        RankData staffRank = registry.get(plugin.getPermissionsManager().getPlayerRank(staff));
         
         // Add rank items
         int slot = 10;
-        for (RankData rank : ranks) {
+        for (RankData rank : registry.getRanksByWeight()) {
             // Skip ranks that are higher than the staff's rank
-            RankData staffRank = plugin.getPermissionsManager().getRank(
-                plugin.getPermissionsManager().getPlayerRank(staff)
-            );
             if (rank.getWeight() >= staffRank.getWeight()) continue;
             
             // Create rank item
@@ -92,10 +90,8 @@ public class RankSelectionGUI {
         }
         
         // Fill empty slots
-        if (ConfigUtils.getBoolean("config", "gui.fill-empty-slots", true)) {
-            ItemStack filler = new ItemStack(Material.valueOf(
-                ConfigUtils.getString("config", "gui.fill-material", "BLACK_STAINED_GLASS_PANE")
-            ));
+        if (settings.getGui().isFillEmptySlots()) {
+            ItemStack filler = new ItemStack(settings.getGui().getFillMaterial());
             ItemMeta fillerMeta = filler.getItemMeta();
             fillerMeta.setDisplayName(" ");
             filler.setItemMeta(fillerMeta);
@@ -122,13 +118,11 @@ public class RankSelectionGUI {
      */
     public void openDurationSelection(Player staff, Player target, String rank) {
         int size = 27; // 3 rows
-        Inventory inv = Bukkit.createInventory(null, size,
-            ConfigUtils.getString("config", "settings.grants.gui.duration-title", "&8Select Duration")
-        );
+        Settings settings = ConfigUtils.getSettings();
+        Inventory inv = Bukkit.createInventory(null, size, settings.getGrants().getDurationTitle());
         
         // Add duration options
-        List<String> durations = ConfigUtils.getConfig("config")
-            .getStringList("settings.grants.default-durations");
+        List<String> durations = settings.getGrants().getDefaultDurations();
         
         int slot = 10;
         for (String duration : durations) {
@@ -152,7 +146,7 @@ public class RankSelectionGUI {
         }
         
         // Add custom duration option
-        if (ConfigUtils.getBoolean("config", "settings.grants.custom-duration-allowed", true)) {
+        if (settings.getGrants().isCustomDurationAllowed()) {
             ItemStack custom = new ItemStack(Material.PAPER);
             ItemMeta customMeta = custom.getItemMeta();
             customMeta.setDisplayName(ConfigUtils.color("&6Custom Duration"));
@@ -168,21 +162,15 @@ public class RankSelectionGUI {
         }
         
         // Add back button
-        ItemStack back = new ItemStack(Material.valueOf(
-            ConfigUtils.getString("config", "gui.back-button.material", "ARROW")
-        ));
+        ItemStack back = new ItemStack(settings.getGui().getBackButtonMaterial());
         ItemMeta backMeta = back.getItemMeta();
-        backMeta.setDisplayName(ConfigUtils.color(
-            ConfigUtils.getString("config", "gui.back-button.name", "&cGo Back")
-        ));
+        backMeta.setDisplayName(settings.getGui().getBackButtonName());
         back.setItemMeta(backMeta);
         inv.setItem(18, back);
         
         // Fill empty slots
-        if (ConfigUtils.getBoolean("config", "gui.fill-empty-slots", true)) {
-            ItemStack filler = new ItemStack(Material.valueOf(
-                ConfigUtils.getString("config", "gui.fill-material", "BLACK_STAINED_GLASS_PANE")
-            ));
+        if (settings.getGui().isFillEmptySlots()) {
+            ItemStack filler = new ItemStack(settings.getGui().getFillMaterial());
             ItemMeta fillerMeta = filler.getItemMeta();
             fillerMeta.setDisplayName(" ");
             filler.setItemMeta(fillerMeta);
@@ -212,9 +200,8 @@ public class RankSelectionGUI {
      */
     public void openConfirmation(Player staff, Player target, String rank, String duration) {
         int size = 27; // 3 rows
-        Inventory inv = Bukkit.createInventory(null, size,
-            ConfigUtils.getString("config", "settings.grants.gui.confirm-title", "&8Confirm Grant")
-        );
+        Settings settings = ConfigUtils.getSettings();
+        Inventory inv = Bukkit.createInventory(null, size, settings.getGrants().getConfirmTitle());
         
         // Add info item
         ItemStack info = new ItemStack(Material.PAPER);
@@ -248,10 +235,8 @@ public class RankSelectionGUI {
         inv.setItem(15, cancel);
         
         // Fill empty slots
-        if (ConfigUtils.getBoolean("config", "gui.fill-empty-slots", true)) {
-            ItemStack filler = new ItemStack(Material.valueOf(
-                ConfigUtils.getString("config", "gui.fill-material", "BLACK_STAINED_GLASS_PANE")
-            ));
+        if (settings.getGui().isFillEmptySlots()) {
+            ItemStack filler = new ItemStack(settings.getGui().getFillMaterial());
             ItemMeta fillerMeta = filler.getItemMeta();
             fillerMeta.setDisplayName(" ");
             filler.setItemMeta(fillerMeta);
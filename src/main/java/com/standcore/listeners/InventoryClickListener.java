@@ -104,9 +104,7 @@ public class InventoryClickListener implements Listener {
         String displayName = clicked.getItemMeta().getDisplayName();
         
         // Check for back button
-        if (displayName.equals(ConfigUtils.color(
-            ConfigUtils.getString("config", "gui.back-button.name", "&cGo Back")
-        ))) {
+        if (displayName.equals(ConfigUtils.getSettings().getGui().getBackButtonName())) {
             rankGui.openRankSelection(player, 
                 plugin.getServer().getPlayer(data.getTargetUUID()));
             return;
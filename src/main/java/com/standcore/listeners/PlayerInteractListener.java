@@ -183,6 +183,13 @@ public class PlayerInteractListener implements Listener {
             "prefix", plugin.getPermissionsManager().getPrefix(target)
         ));
         
+        // Show linked accounts
+        player.sendMessage(ConfigUtils.getMessage("staff.inspect.player-alts",
+            "alts", String.valueOf(plugin.getAltsManager().getAlts(target.getUniqueId()).size()),
+            "cluster", String.valueOf(plugin.getAltsManager().getClusterSize(target.getUniqueId())),
+            "flagged", plugin.getAltsManager().isFlagged(target.getUniqueId()) ? "&cYes" : "&aNo"
+        ));
+        
         // Show active sanctions
         if (plugin.getSanctionsManager().isMuted(target)) {
             player.sendMessage(ConfigUtils.getMessage("staff.inspect.player-muted",
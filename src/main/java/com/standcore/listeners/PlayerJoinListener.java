@@ -4,9 +4,13 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+import com.standcore.managers.SessionManager.PlayerSession;
 import com.standcore.util.ConfigUtils;
 
 public class PlayerJoinListener implements Listener {
@@ -16,34 +20,57 @@ public class PlayerJoinListener implements Listener {
         this.plugin = plugin;
     }
     
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        
+        // Load grants and counts off the main thread so joining never touches the disk
+        plugin.getSessionManager().load(event.getUniqueId(), event.getName());
+        plugin.getAltsManager().recordLogin(event.getUniqueId(), event.getName(), event.getAddress());
+    }
+    
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerLoginEarly(PlayerLoginEvent event) {
+        // Before anyone else adds attachments, which a replaced Permissible would lose
+        plugin.getPermissionsManager().injectPermissible(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // Denied after the session was loaded, e.g. by a name ban or a full server
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.getSessionManager().scheduleEviction(event.getPlayer().getUniqueId());
+            plugin.getPermissionsManager().unloadPlayer(event.getPlayer());
+        }
+    }
+    
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
-        // Set up permissions
-        String defaultRank = ConfigUtils.getString("ranks", "settings.default-rank", "default");
-        plugin.getPermissionsManager().setupPermissions(player, defaultRank);
-        
-        // Check for active grants
-        plugin.getGrantsManager().getActiveGrants(player.getUniqueId()).stream()
-            .filter(grant -> !grant.isExpired())
-            .findFirst()
-            .ifPresent(grant -> {
-                // Apply the grant's rank
-                plugin.getPermissionsManager().setupPermissions(player, grant.getRank());
-                
-                // If temporary, show remaining time
-                if (!grant.isPermanent()) {
-                    player.sendMessage(ConfigUtils.getMessage("grants.temporary-remaining",
-                        "rank", plugin.getPermissionsManager().getRank(grant.getRank()).getName(),
-                        "time", ConfigUtils.formatDuration(grant.getRemaining())
-                    ));
-                }
+        // Apply the session loaded at login, it decides the rank so permissions are set up once
+        PlayerSession session = plugin.getSessionManager().get(player.getUniqueId());
+        if (session != null) {
+            applySession(player, session);
+        } else {
+            // Login was handled before the plugin was enabled, load it now without blocking the join
+            plugin.getPermissionsManager().setupPermissions(player, ConfigUtils.getSettings().getDefaultRank());
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                PlayerSession loaded = plugin.getSessionManager().load(player.getUniqueId(), player.getName());
+                // Not through the applier, a rank re-apply queued meanwhile must not replace loading the grants
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) {
+                        applySession(player, loaded);
+                    }
+                });
             });
+        }
         
         // Check if player should join with staff mode
         if (player.hasPermission("standcore.staff") && 
-            ConfigUtils.getBoolean("config", "settings.staff-mode.join-with-staff-mode", false)) {
+            ConfigUtils.getSettings().getStaffMode().isJoinWithStaffMode()) {
             plugin.getStaffModeManager().enableStaffMode(player);
         }
         
@@ -67,6 +94,27 @@ public class PlayerJoinListener implements Listener {
         }
     }
     
+    /**
+     * Applies the grants loaded for a player at login and sets up the rank they give
+     * @param player The player
+     * @param session The player's session
+     */
+    private void applySession(Player player, PlayerSession session) {
+        plugin.getGrantsManager().loadActiveGrants(player.getUniqueId(), session.getActiveGrants());
+        
+        // Apply the grant's rank, or the default rank without one
+        Grant grant = plugin.getGrantsManager().getEffectiveGrant(player.getUniqueId());
+        plugin.getPermissionsManager().reapplyRank(player);
+        
+        // If temporary, show remaining time
+        if (grant != null && !grant.isPermanent()) {
+            player.sendMessage(ConfigUtils.getMessage("grants.temporary-remaining",
+                "rank", plugin.getPermissionsManager().getRank(grant.getRank()).getName(),
+                "time", ConfigUtils.formatDuration(grant.getRemaining())
+            ));
+        }
+    }
+    
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
@@ -77,7 +125,11 @@ public class PlayerJoinListener implements Listener {
         }
         
         // Clean up permissions
-        plugin.getPermissionsManager().clearPermissions(player);
+        plugin.getPermissionsManager().unloadPlayer(player);
+        plugin.getChatLimiter().forget(player.getUniqueId());
+        
+        // Keep the session for a quick rejoin, then let it go
+        plugin.getSessionManager().scheduleEviction(player.getUniqueId());
         
         // If player was frozen, notify staff
         if (plugin.getStaffModeManager().isFrozen(player)) {
@@ -31,7 +31,7 @@ public class PlayerMoveListener implements Listener {
                 event.setTo(from);
                 
                 // Send frozen message if configured
-                if (ConfigUtils.getBoolean("config", "settings.staff-mode.show-frozen-message", true)) {
+                if (ConfigUtils.getSettings().getStaffMode().isShowFrozenMessage()) {
                     player.sendMessage(ConfigUtils.getMessage("staff.you-are-frozen"));
                 }
             }
@@ -55,7 +55,7 @@ public class PlayerMoveListener implements Listener {
         // Handle staff mode teleportation
         if (plugin.getStaffModeManager().isInStaffMode(player)) {
             // Store last location before teleport if configured
-            if (ConfigUtils.getBoolean("config", "settings.staff-mode.store-last-location", true)) {
+            if (ConfigUtils.getSettings().getStaffMode().isStoreLastLocation()) {
                 plugin.getStaffModeManager().setLastLocation(player, event.getFrom());
             }
         }
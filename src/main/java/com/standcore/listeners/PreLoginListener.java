@@ -0,0 +1,26 @@
+package com.standcore.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import com.standcore.StandCore;
+import com.standcore.managers.SanctionsManager.Sanction;
+
+public class PreLoginListener implements Listener {
+    private final StandCore plugin;
+    
+    public PreLoginListener(StandCore plugin) {
+        this.plugin = plugin;
+    }
+    
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Bans are keyed by UUID, checked here so banned players never reach the main thread
+        Sanction ban = plugin.getSanctionsManager().getLoginBan(event.getUniqueId(), event.getAddress());
+        if (ban != null) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, 
+                plugin.getSanctionsManager().getBanScreen(ban));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.standcore.managers;
+
+import com.standcore.StandCore;
+import com.standcore.managers.SanctionsManager.SanctionType;
+import com.standcore.storage.AddressIndex;
+import com.standcore.util.ConfigUtils;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class AltsManager {
+    private final StandCore plugin;
+    private final AddressIndex index;
+
+    public AltsManager(StandCore plugin) {
+        this.plugin = plugin;
+        this.index = plugin.getStorageManager().getAddressIndex();
+
+        // Clusters are rebuilt on load, flag the ones holding a banned account again
+        for (UUID banned : plugin.getStorageManager().getActiveIndex().getAll(SanctionType.BAN).keySet()) {
+            index.flagCluster(banned);
+        }
+    }
+
+    /**
+     * Records a login and alerts staff when a new account shows up on the address
+     * of a banned one. Called off the main thread while the player is logging in.
+     * @param uuid The player's UUID
+     * @param playerName The player's name
+     * @param address The address the player connected from
+     */
+    public void recordLogin(UUID uuid, String playerName, InetAddress address) {
+        long key = AddressIndex.key(address);
+        if (!index.record(uuid, key, System.currentTimeMillis())) {
+            if (index.isFlagged(uuid)) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> alertCluster(uuid, playerName));
+            }
+            return;
+        }
+
+        List<UUID> banned = new ArrayList<>();
+        for (UUID account : index.getAccounts(key, getWindow())) {
+            if (!account.equals(uuid) && plugin.getSanctionsManager().getActiveBan(account) != null) {
+                banned.add(account);
+            }
+        }
+
+        if (!banned.isEmpty()) {
+            plugin.getServer().getScheduler().runTask(plugin, () -> alert(playerName, banned));
+        } else if (index.isFlagged(uuid)) {
+            plugin.getServer().getScheduler().runTask(plugin, () -> alertCluster(uuid, playerName));
+        }
+    }
+
+    /**
+     * Gets the accounts that shared an address with a player within the alt window
+     * @param uuid The player's UUID
+     * @return The accounts, most recently seen first
+     */
+    public List<AddressIndex.Alt> getAlts(UUID uuid) {
+        return index.getAlts(uuid, getWindow());
+    }
+
+    /**
+     * Gets every account linked to a player through shared addresses
+     * @param uuid The player's UUID
+     * @return The accounts, including the player's own
+     */
+    public List<UUID> getCluster(UUID uuid) {
+        return index.getCluster(uuid);
+    }
+
+    /**
+     * Gets the number of accounts linked to a player through shared addresses
+     * @param uuid The player's UUID
+     * @return The cluster size, including the player
+     */
+    public int getClusterSize(UUID uuid) {
+        return index.getClusterSize(uuid);
+    }
+
+    /**
+     * Flags the cluster of a banned player, so staff hear about its other accounts joining
+     * @param uuid The banned player's UUID
+     */
+    public void flagCluster(UUID uuid) {
+        index.flagCluster(uuid);
+    }
+
+    /**
+     * Clears the flag on an unbanned player's cluster, unless another of its accounts is still banned
+     * @param uuid The unbanned player's UUID
+     */
+    public void unflagCluster(UUID uuid) {
+        index.unflagCluster(uuid);
+        for (UUID account : index.getCluster(uuid)) {
+            if (!account.equals(uuid) && plugin.getSanctionsManager().getActiveBan(account) != null) {
+                index.flagCluster(account);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a player is linked to a banned account
+     * @param uuid The player's UUID
+     * @return true if the player's cluster is flagged
+     */
+    public boolean isFlagged(UUID uuid) {
+        return index.isFlagged(uuid);
+    }
+
+    /**
+     * Checks whether banning a player also bans their alts
+     * @return true if alts are banned with the player
+     */
+    public boolean isClusterBanEnabled() {
+        return ConfigUtils.getSettings().getAlts().isClusterBan();
+    }
+
+    /**
+     * Gets how many alts a ban may take down with it, more than this and staff review them instead
+     * @return The limit
+     */
+    public int getMaxLinkedBans() {
+        return ConfigUtils.getSettings().getAlts().getMaxLinkedBans();
+    }
+
+    /**
+     * Resolves the name of an account
+     * @param uuid The account's UUID
+     * @return The last known name or the UUID if the server never saw one
+     */
+    public String getName(UUID uuid) {
+        String name = plugin.getServer().getOfflinePlayer(uuid).getName();
+        return name != null ? name : uuid.toString();
+    }
+
+    /**
+     * Notifies staff that a player joined from a banned account's address
+     * @param playerName The player's name
+     * @param banned The banned accounts
+     */
+    private void alert(String playerName, List<UUID> banned) {
+        List<String> names = new ArrayList<>();
+        for (UUID account : banned) {
+            names.add(getName(account));
+        }
+
+        plugin.getServer().broadcast(ConfigUtils.getMessage("alts.alert",
+            "player", playerName,
+            "banned", String.join(", ", names)
+        ), "standcore.alts.alert");
+        plugin.getLogger().warning(playerName + " logged in from the address of banned account(s) "
+            + String.join(", ", names));
+    }
+
+    /**
+     * Notifies staff that an account linked to a banned one joined
+     * @param uuid The player's UUID
+     * @param playerName The player's name
+     */
+    private void alertCluster(UUID uuid, String playerName) {
+        plugin.getServer().broadcast(ConfigUtils.getMessage("alts.cluster-alert",
+            "player", playerName,
+            "size", String.valueOf(index.getClusterSize(uuid))
+        ), "standcore.alts.alert");
+    }
+
+    private int getWindow() {
+        return ConfigUtils.getSettings().getAlts().getWindowDays();
+    }
+}
@@ -1,31 +1,41 @@
 package com.standcore.managers;
 
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import com.standcore.StandCore;
+import com.standcore.storage.CounterIndex;
+import com.standcore.storage.GrantStore;
+import com.standcore.storage.WriteBehindJournal;
 import com.standcore.util.ConfigUtils;
-import com.standcore.util.FileUtils;
+import com.standcore.util.ExpiryScheduler;
+import com.standcore.util.HistoryCache;
 
-import java.io.File;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 public class GrantsManager {
     private final StandCore plugin;
+    private final GrantStore store;
+    private final CounterIndex counters;
+    private final ExpiryScheduler expiries;
     private final Map<UUID, List<Grant>> activeGrants;
-    private final SimpleDateFormat dateFormat;
+    private final HistoryCache<UUID, Grant> historyCache;
     
     public GrantsManager(StandCore plugin) {
         this.plugin = plugin;
+        this.store = plugin.getStorageManager().getGrantStore();
+        this.counters = plugin.getStorageManager().getCounterIndex();
+        this.expiries = plugin.getExpiryScheduler();
         this.activeGrants = new ConcurrentHashMap<>();
-        this.dateFormat = new SimpleDateFormat(
-            ConfigUtils.getString("config", "settings.date-format", "dd/MM/yyyy HH:mm:ss")
+        this.historyCache = new HistoryCache<>(
+            ConfigUtils.getSettings().getCache().getHistoryMaxPlayers(),
+            ConfigUtils.getSettings().getCache().getHistoryMaxRecords()
         );
-        
-        // Start expiration checker
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::checkExpirations, 20L * 60, 20L * 60);
+        WriteBehindJournal journal = plugin.getStorageManager().getJournal();
+        if (journal != null) {
+            journal.onGrantsWritten(historyCache::invalidate);
+        }
     }
     
     /**
@@ -59,6 +69,7 @@ public class GrantsManager {
             k -> new ArrayList<>()
         );
         playerGrants.add(grant);
+        scheduleExpiry(target.getUniqueId(), grant);
         
         // Save to history
         saveGrant(target.getUniqueId(), grant);
@@ -84,37 +95,27 @@ public class GrantsManager {
     /**
      * Gets a player's grant history
      * @param uuid The player's UUID
-     * @return List of grants
+     * @return List of grants (newest first, read-only)
      */
     public List<Grant> getGrantHistory(UUID uuid) {
-        File file = new File(plugin.getDataFolder(), "data/grants/" + uuid + ".yml");
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        
-        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-        List<Grant> grants = new ArrayList<>();
-        
-        ConfigurationSection grantsSection = config.getConfigurationSection("grants");
-        if (grantsSection != null) {
-            for (String key : grantsSection.getKeys(false)) {
-                ConfigurationSection grantSection = grantsSection.getConfigurationSection(key);
-                if (grantSection == null) continue;
-                
-                grants.add(new Grant(
-                    UUID.fromString(key),
-                    grantSection.getString("rank"),
-                    grantSection.getString("granter"),
-                    UUID.fromString(grantSection.getString("granter-uuid")),
-                    grantSection.getLong("granted"),
-                    grantSection.getLong("expiration")
-                ));
-            }
-        }
-        
-        // Sort by date (newest first)
-        grants.sort((g1, g2) -> Long.compare(g2.getGranted(), g1.getGranted()));
-        return grants;
+        return historyCache.get(uuid, store::getGrantHistory);
+    }
+    
+    /**
+     * Gets how many grants a player has received without loading their history
+     * @param uuid The player's UUID
+     * @return The grant count
+     */
+    public int getGrantCount(UUID uuid) {
+        return counters.getGrantCount(uuid, store::getGrantHistory);
+    }
+    
+    /**
+     * Gets the grant history cache
+     * @return The cache
+     */
+    public HistoryCache<UUID, Grant> getHistoryCache() {
+        return historyCache;
     }
     
     /**
@@ -126,63 +127,103 @@ public class GrantsManager {
         return activeGrants.getOrDefault(uuid, new ArrayList<>());
     }
     
+    /**
+     * Gets the grant that decides a player's rank
+     * @param uuid The player's UUID
+     * @return The first active grant that has not expired, or null
+     */
+    public Grant getEffectiveGrant(UUID uuid) {
+        for (Grant grant : getActiveGrants(uuid)) {
+            if (!grant.isExpired()) return grant;
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the rank a player's grants give them right now
+     * @param uuid The player's UUID
+     * @return The rank of their effective grant, or the default rank without one
+     */
+    public String getEffectiveRank(UUID uuid) {
+        Grant grant = getEffectiveGrant(uuid);
+        return grant != null ? grant.getRank() : ConfigUtils.getSettings().getDefaultRank();
+    }
+    
+    /**
+     * Sets a player's active grants loaded at login, keeping any that were changed
+     * while their previous session was still loaded
+     * @param uuid The player's UUID
+     * @param grants The active grants (oldest first)
+     */
+    public void loadActiveGrants(UUID uuid, List<Grant> grants) {
+        if (!grants.isEmpty() && activeGrants.putIfAbsent(uuid, new ArrayList<>(grants)) == null) {
+            for (Grant grant : grants) {
+                scheduleExpiry(uuid, grant);
+            }
+        }
+    }
+    
+    /**
+     * Forgets a player's active grants once their session is evicted
+     * @param uuid The player's UUID
+     */
+    public void unloadActiveGrants(UUID uuid) {
+        List<Grant> grants = activeGrants.remove(uuid);
+        if (grants != null) {
+            for (Grant grant : grants) {
+                expiries.cancel(grant.getId());
+            }
+        }
+    }
+    
     /**
      * Saves a grant to the player's history
      * @param uuid The player's UUID
      * @param grant The grant to save
      */
     private void saveGrant(UUID uuid, Grant grant) {
-        File file = new File(plugin.getDataFolder(), "data/grants/" + uuid + ".yml");
-        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-        
-        ConfigurationSection grantSection = config.createSection("grants." + grant.getId().toString());
-        grantSection.set("rank", grant.getRank());
-        grantSection.set("granter", grant.getGranter());
-        grantSection.set("granter-uuid", grant.getGranterUUID().toString());
-        grantSection.set("granted", grant.getGranted());
-        grantSection.set("expiration", grant.getExpiration());
-        
+        // Count first, a player counted from history for the first time must not see this grant twice
+        counters.addGrant(uuid, grant, store::getGrantHistory);
         try {
-            config.save(file);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to save grant history for " + uuid);
-            e.printStackTrace();
+            store.saveGrant(uuid, grant);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save grant history for " + uuid, e);
         }
+        historyCache.invalidate(uuid);
     }
     
     /**
-     * Checks for expired grants
+     * Removes a grant from the player's active grants at its expiration
+     * @param uuid The player's UUID
+     * @param grant The grant
      */
-    private void checkExpirations() {
-        long now = System.currentTimeMillis();
+    private void scheduleExpiry(UUID uuid, Grant grant) {
+        if (grant.isPermanent()) return;
         
-        for (Map.Entry<UUID, List<Grant>> entry : activeGrants.entrySet()) {
-            UUID uuid = entry.getKey();
-            List<Grant> grants = entry.getValue();
-            
-            // Remove expired grants
-            grants.removeIf(grant -> {
-                if (grant.getExpiration() != -1 && grant.getExpiration() <= now) {
-                    Player player = plugin.getServer().getPlayer(uuid);
-                    if (player != null) {
-                        // Reset to default rank
-                        String defaultRank = ConfigUtils.getString("ranks", "settings.default-rank", "default");
-                        plugin.getPermissionsManager().setupPermissions(player, defaultRank);
-                        
-                        player.sendMessage(ConfigUtils.getMessage("grants.expired",
-                            "rank", plugin.getPermissionsManager().getRank(grant.getRank()).getName()
-                        ));
-                    }
-                    return true;
-                }
-                return false;
-            });
+        expiries.schedule(grant.getId(), grant.getExpiration(), () -> {
+            List<Grant> grants = activeGrants.get(uuid);
+            if (grants == null || !grants.remove(grant)) return;
             
             // Remove entry if no grants left
             if (grants.isEmpty()) {
-                activeGrants.remove(uuid);
+                activeGrants.remove(uuid, grants);
             }
-        }
+            
+            Player player = plugin.getServer().getPlayer(uuid);
+            if (player == null) return;
+            
+            player.sendMessage(ConfigUtils.getMessage("grants.expired",
+                "rank", plugin.getPermissionsManager().getRank(grant.getRank()).getName()
+            ));
+            
+            // Many grants can end on the same tick, e.g. an event rank, so the rank change is spread out.
+            // It may be replaced by another re-apply before it runs, both resolve the rank when they run
+            plugin.getMainThreadApplier().submit(uuid, () -> {
+                if (player.isOnline()) {
+                    plugin.getPermissionsManager().reapplyRank(player);
+                }
+            });
+        });
     }
     
     /**
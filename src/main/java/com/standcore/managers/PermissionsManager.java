@@ -2,45 +2,64 @@ package com.standcore.managers;
 
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissibleBase;
 import org.bukkit.permissions.PermissionAttachment;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 import com.standcore.StandCore;
 import com.standcore.util.ConfigUtils;
+import com.standcore.util.PermissionTrie;
+import com.standcore.util.RankPermissible;
+import com.standcore.util.TeamUpdateQueue;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 public class PermissionsManager {
     private final StandCore plugin;
     private final Map<UUID, PermissionAttachment> attachments;
-    private final Map<String, RankData> ranks;
+    private final Map<UUID, Map<String, Boolean>> appliedPermissions;
+    private final Map<UUID, RankPermissible> injected;
+    private final Map<UUID, PermissibleBase> replaced;
+    private final boolean injectPermissible;
+    private volatile RankRegistry registry;
     private final Map<UUID, String> playerRanks;
     private final Scoreboard scoreboard;
+    private final TeamUpdateQueue teamUpdates;
     
     public PermissionsManager(StandCore plugin) {
         this.plugin = plugin;
         this.attachments = new ConcurrentHashMap<>();
-        this.ranks = new HashMap<>();
+        this.appliedPermissions = new ConcurrentHashMap<>();
+        this.injected = new ConcurrentHashMap<>();
+        this.replaced = new ConcurrentHashMap<>();
+        this.injectPermissible = ConfigUtils.getSettings().getPermissions().isInjectPermissible();
+        this.registry = RankRegistry.EMPTY;
         this.playerRanks = new ConcurrentHashMap<>();
         this.scoreboard = plugin.getServer().getScoreboardManager().getMainScoreboard();
+        this.teamUpdates = new TeamUpdateQueue(plugin, scoreboard);
+        this.teamUpdates.start();
         
         loadRanks();
     }
     
     /**
-     * Loads all ranks from ranks.yml
+     * Loads all ranks from ranks.yml into a new registry and swaps it in at once, readers see either
+     * the old or the new ranks
      */
     public void loadRanks() {
-        ranks.clear();
         ConfigurationSection ranksSection = ConfigUtils.getSection("ranks", "ranks");
+        String defaultRank = ConfigUtils.getSettings().getDefaultRank();
         
         if (ranksSection == null) {
             plugin.getLogger().warning("No ranks found in ranks.yml!");
+            registry = new RankRegistry(Collections.<RankData>emptyList(), defaultRank);
             return;
         }
         
         // Load each rank
+        Map<String, RankData> loaded = new HashMap<>();
         for (String rankName : ranksSection.getKeys(false)) {
             ConfigurationSection rankSection = ranksSection.getConfigurationSection(rankName);
             if (rankSection == null) continue;
@@ -51,102 +70,260 @@ public class PermissionsManager {
             List<String> permissions = rankSection.getStringList("permissions");
             List<String> inheritance = rankSection.getStringList("inheritance");
             
-            RankData rank = new RankData(rankName, name, prefix, weight, permissions, inheritance);
-            ranks.put(rankName.toLowerCase(), rank);
-            
-            // Create or update team for this rank
-            String teamName = "z" + String.format("%03d", weight) + rankName;
-            if (teamName.length() > 16) teamName = teamName.substring(0, 16);
-            
+            RankData rank = new RankData(rankName, name, prefix, weight, permissions, inheritance,
+                Collections.<String, Boolean>emptyMap(), null);
+            loaded.put(rankName.toLowerCase(), rank);
+        }
+        
+        // Flatten each rank's inheritance once, players then share the resolved set
+        Map<String, Map<String, Boolean>> resolved = new HashMap<>();
+        for (String rankId : loaded.keySet()) {
+            resolvePermissions(rankId, loaded, resolved, new LinkedHashSet<>());
+        }
+        List<RankData> ranks = new ArrayList<>();
+        for (RankData rank : loaded.values()) {
+            Map<String, Boolean> effective = resolved.get(rank.getId().toLowerCase());
+            ranks.add(new RankData(rank.getId(), rank.getName(), rank.getPrefix(), rank.getWeight(),
+                rank.getPermissions(), rank.getInheritance(), effective, new PermissionTrie(effective)));
+        }
+        RankRegistry next = new RankRegistry(ranks, defaultRank);
+        
+        // Create or update the team of each rank, membership changes then go by handle
+        Map<String, Team> teams = new HashMap<>();
+        for (RankData rank : next.getRanksByWeight()) {
+            String teamName = next.getTeamName(rank);
             Team team = scoreboard.getTeam(teamName);
             if (team == null) {
                 team = scoreboard.registerNewTeam(teamName);
             }
-            team.setPrefix(prefix);
+            if (!rank.getPrefix().equals(team.getPrefix())) {
+                team.setPrefix(rank.getPrefix());
+            }
+            teams.put(teamName, team);
         }
+        teamUpdates.setTeams(teams);
+        registry = next;
     }
     
     /**
-     * Sets up permissions for a player
+     * Reloads ranks.yml and re-applies ranks to the online players whose rank changed
+     * @return The number of players the new ranks are being applied to, or -1 if ranks.yml is invalid
+     *         and the current ranks were kept
+     */
+    public int reloadRanks() {
+        List<String> problems = ConfigUtils.reloadConfig("ranks");
+        if (!problems.isEmpty()) {
+            for (String problem : problems) {
+                plugin.getLogger().warning("Keeping the current ranks, invalid configuration: " + problem);
+            }
+            return -1;
+        }
+        return refreshRanks();
+    }
+    
+    /**
+     * Rebuilds the ranks from the loaded ranks.yml and re-applies them to the online players whose rank
+     * changed, spread over the next ticks. Everyone else keeps their permissions and team untouched.
+     * @return The number of players the new ranks are being applied to
+     */
+    public int refreshRanks() {
+        RankRegistry previous = registry;
+        loadRanks();
+        RankRegistry current = registry;
+        
+        // Teams of removed or re-weighted ranks are no longer used, their players are moved below
+        Set<String> teamNames = new HashSet<>(current.getTeamNames());
+        for (String teamName : previous.getTeamNames()) {
+            Team team = scoreboard.getTeam(teamName);
+            if (team != null && !teamNames.contains(teamName)) {
+                team.unregister();
+            }
+        }
+        
+        int changed = 0;
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            // Resolved from the grants, the cached rank may belong to a grant that has since expired
+            String rankName = plugin.getGrantsManager().getEffectiveRank(player.getUniqueId());
+            if (rankName.equalsIgnoreCase(getPlayerRank(player))
+                && isSameRank(previous.find(rankName), current.find(rankName))) continue;
+            
+            plugin.getMainThreadApplier().submit(player.getUniqueId(), () -> {
+                if (player.isOnline()) {
+                    reapplyRank(player);
+                }
+            });
+            changed++;
+        }
+        return changed;
+    }
+    
+    /**
+     * Checks whether a player would end up with the same permissions and team under either rank
+     * @param before The rank before a reload
+     * @param after The rank after it
+     * @return true if nothing needs to be re-applied
+     */
+    private boolean isSameRank(RankData before, RankData after) {
+        if (before == null || after == null) return before == after;
+        return before.getId().equalsIgnoreCase(after.getId())
+            && before.getWeight() == after.getWeight()
+            && before.getPrefix().equals(after.getPrefix())
+            && before.getEffectivePermissions().equals(after.getEffectivePermissions());
+    }
+    
+    /**
+     * Resolves the permissions of a rank and everything it inherits
+     * @param rankId The rank id
+     * @param loaded The ranks read from ranks.yml
+     * @param resolved Permissions already resolved, by rank id
+     * @param path The ranks being resolved, used to detect inheritance cycles
+     * @return The rank's flattened permissions, "-node" entries become node = false
+     */
+    private Map<String, Boolean> resolvePermissions(String rankId, Map<String, RankData> loaded,
+                                                    Map<String, Map<String, Boolean>> resolved,
+                                                    LinkedHashSet<String> path) {
+        Map<String, Boolean> done = resolved.get(rankId);
+        if (done != null) return done;
+        
+        RankData rank = loaded.get(rankId);
+        path.add(rankId);
+        Map<String, Boolean> permissions = new HashMap<>();
+        for (String inheritedRankName : rank.getInheritance()) {
+            String inherited = inheritedRankName.toLowerCase();
+            if (path.contains(inherited)) {
+                plugin.getLogger().warning("Ignoring inheritance cycle in ranks.yml: "
+                    + String.join(" -> ", path) + " -> " + inherited);
+            } else if (!loaded.containsKey(inherited)) {
+                plugin.getLogger().warning("Rank " + rank.getId() + " inherits unknown rank " + inheritedRankName);
+            } else {
+                permissions.putAll(resolvePermissions(inherited, loaded, resolved, path));
+            }
+        }
+        
+        // The rank's own permissions override inherited ones
+        for (String permission : rank.getPermissions()) {
+            String node = permission.toLowerCase();
+            if (node.startsWith("-")) {
+                permissions.put(node.substring(1), false);
+            } else {
+                permissions.put(node, true);
+            }
+        }
+        path.remove(rankId);
+        
+        Map<String, Boolean> result = Collections.unmodifiableMap(permissions);
+        resolved.put(rankId, result);
+        return result;
+    }
+    
+    /**
+     * Sets up permissions for a player, only changing what differs from their current rank
      * @param player The player
      * @param rankName The rank name
      */
     public void setupPermissions(Player player, String rankName) {
-        // Remove existing permissions
-        clearPermissions(player);
-        
-        RankData rank = ranks.get(rankName.toLowerCase());
+        RankRegistry registry = this.registry;
+        RankData rank = registry.find(rankName);
         if (rank == null) {
-            rank = ranks.get(ConfigUtils.getString("ranks", "settings.default-rank", "default"));
-            if (rank == null) {
-                plugin.getLogger().warning("Default rank not found for player: " + player.getName());
-                return;
-            }
+            plugin.getLogger().warning("Default rank not found for player: " + player.getName());
+            clearPermissions(player);
+            return;
         }
         
-        // Create new attachment
-        PermissionAttachment attachment = player.addAttachment(plugin);
-        attachments.put(player.getUniqueId(), attachment);
-        
-        // Apply permissions from rank and its inheritance
-        Set<String> appliedPermissions = new HashSet<>();
-        applyRankPermissions(rank, attachment, appliedPermissions);
+        RankPermissible permissible = injected.get(player.getUniqueId());
+        if (permissible != null) {
+            // Checks go straight to the rank's trie, one recalculation instead of one per node
+            if (permissible.getTrie() != rank.getPermissionTrie()) {
+                permissible.setTrie(rank.getPermissionTrie());
+                player.recalculatePermissions();
+            }
+        } else {
+            applyAttachment(player, rank);
+        }
         
         // Update player's rank
         playerRanks.put(player.getUniqueId(), rankName.toLowerCase());
         
-        // Update player's team
-        updatePlayerTeam(player, rank);
+        // Update player's team with the next batch
+        teamUpdates.move(player.getName(), registry.getTeamName(rank));
     }
     
     /**
-     * Applies permissions from a rank and its inheritance
+     * Applies a rank through the player's attachment, only changing what differs from the last rank applied
+     * @param player The player
      * @param rank The rank
-     * @param attachment The permission attachment
-     * @param appliedPermissions Set of already applied permissions
      */
-    private void applyRankPermissions(RankData rank, PermissionAttachment attachment, Set<String> appliedPermissions) {
-        // Apply inherited permissions first
-        for (String inheritedRankName : rank.getInheritance()) {
-            RankData inheritedRank = ranks.get(inheritedRankName.toLowerCase());
-            if (inheritedRank != null) {
-                applyRankPermissions(inheritedRank, attachment, appliedPermissions);
-            }
+    private void applyAttachment(Player player, RankData rank) {
+        PermissionAttachment attachment = attachments.get(player.getUniqueId());
+        if (attachment == null) {
+            attachment = player.addAttachment(plugin);
+            attachments.put(player.getUniqueId(), attachment);
         }
         
-        // Apply rank's permissions
-        for (String permission : rank.getPermissions()) {
-            if (!appliedPermissions.contains(permission)) {
-                if (permission.endsWith(".*")) {
-                    String basePermission = permission.substring(0, permission.length() - 2);
-                    attachment.setPermission(basePermission + ".*", true);
-                } else {
-                    attachment.setPermission(permission, true);
-                }
-                appliedPermissions.add(permission);
+        // Ranks share their resolved maps, so reapplying an unchanged rank costs nothing
+        Map<String, Boolean> target = rank.getEffectivePermissions();
+        Map<String, Boolean> current = appliedPermissions.getOrDefault(player.getUniqueId(),
+            Collections.<String, Boolean>emptyMap());
+        if (current == target) return;
+        
+        for (String permission : current.keySet()) {
+            if (!target.containsKey(permission)) {
+                attachment.unsetPermission(permission);
             }
         }
+        for (Map.Entry<String, Boolean> entry : target.entrySet()) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                attachment.setPermission(entry.getKey(), entry.getValue());
+            }
+        }
+        appliedPermissions.put(player.getUniqueId(), target);
     }
     
     /**
-     * Updates a player's team based on their rank
+     * Replaces a joining player's Permissible with one that resolves their rank through a trie,
+     * if enabled in the config. Runs before other plugins add attachments at join.
      * @param player The player
-     * @param rank The rank
      */
-    private void updatePlayerTeam(Player player, RankData rank) {
-        String teamName = "z" + String.format("%03d", rank.getWeight()) + rank.getId();
-        if (teamName.length() > 16) teamName = teamName.substring(0, 16);
+    public void injectPermissible(Player player) {
+        if (!injectPermissible) return;
         
-        // Remove from old team
-        Team currentTeam = scoreboard.getEntryTeam(player.getName());
-        if (currentTeam != null) {
-            currentTeam.removeEntry(player.getName());
+        try {
+            RankPermissible permissible = new RankPermissible(player);
+            PermissibleBase previous = RankPermissible.inject(player, permissible);
+            injected.put(player.getUniqueId(), permissible);
+            if (previous != null) {
+                replaced.put(player.getUniqueId(), previous);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to inject permissible for " + player.getName()
+                + ", falling back to attachments", e);
         }
-        
-        // Add to new team
-        Team newTeam = scoreboard.getTeam(teamName);
-        if (newTeam != null) {
-            newTeam.addEntry(player.getName());
+    }
+    
+    /**
+     * Forgets a player who left
+     * @param player The player
+     */
+    public void unloadPlayer(Player player) {
+        clearPermissions(player);
+        injected.remove(player.getUniqueId());
+        replaced.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Gives online players back the Permissible the server created for them, along with the
+     * attachments other plugins added since, so disabling the plugin leaves no trace
+     */
+    public void restorePermissibles() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (injected.remove(player.getUniqueId()) != null) {
+                PermissibleBase original = replaced.remove(player.getUniqueId());
+                try {
+                    RankPermissible.inject(player, original != null ? original : new PermissibleBase(player));
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to restore permissible for " + player.getName(), e);
+                }
+            }
         }
     }
     
@@ -159,12 +336,30 @@ public class PermissionsManager {
         if (attachment != null) {
             player.removeAttachment(attachment);
         }
+        appliedPermissions.remove(player.getUniqueId());
+        RankPermissible permissible = injected.get(player.getUniqueId());
+        if (permissible != null) {
+            permissible.setTrie(null);
+        }
         playerRanks.remove(player.getUniqueId());
         
-        Team team = scoreboard.getEntryTeam(player.getName());
-        if (team != null) {
-            team.removeEntry(player.getName());
-        }
+        teamUpdates.remove(player.getName());
+    }
+    
+    /**
+     * @return The queue of team changes sent once per tick
+     */
+    public TeamUpdateQueue getTeamUpdates() {
+        return teamUpdates;
+    }
+    
+    /**
+     * Sets up a player's permissions for the rank their active grants give them. Safe to queue
+     * on the main thread applier, it looks at the grants when it runs rather than when queued.
+     * @param player The player
+     */
+    public void reapplyRank(Player player) {
+        setupPermissions(player, plugin.getGrantsManager().getEffectiveRank(player.getUniqueId()));
     }
     
     /**
@@ -173,8 +368,8 @@ public class PermissionsManager {
      * @return The rank name or default rank
      */
     public String getPlayerRank(Player player) {
-        return playerRanks.getOrDefault(player.getUniqueId(), 
-            ConfigUtils.getString("ranks", "settings.default-rank", "default"));
+        String rank = playerRanks.get(player.getUniqueId());
+        return rank != null ? rank : registry.getDefaultRank();
     }
     
     /**
@@ -183,7 +378,15 @@ public class PermissionsManager {
      * @return The rank data or null if not found
      */
     public RankData getRank(String rankName) {
-        return ranks.get(rankName.toLowerCase());
+        return registry.get(rankName);
+    }
+    
+    /**
+     * Gets the current ranks. Hold on to the result to read several ranks consistently.
+     * @return The rank registry, immutable and safe to read from any thread
+     */
+    public RankRegistry getRegistry() {
+        return registry;
     }
     
     /**
@@ -191,7 +394,7 @@ public class PermissionsManager {
      * @return Map of rank name to rank data
      */
     public Map<String, RankData> getRanks() {
-        return Collections.unmodifiableMap(ranks);
+        return registry.getRanks();
     }
     
     /**
@@ -200,7 +403,7 @@ public class PermissionsManager {
      * @return true if the rank exists
      */
     public boolean rankExists(String rankName) {
-        return ranks.containsKey(rankName.toLowerCase());
+        return registry.contains(rankName);
     }
     
     /**
@@ -209,9 +412,7 @@ public class PermissionsManager {
      * @return The prefix or empty string if no rank
      */
     public String getPrefix(Player player) {
-        String rankName = getPlayerRank(player);
-        RankData rank = ranks.get(rankName);
-        return rank != null ? rank.getPrefix() : "";
+        return registry.getPrefix(getPlayerRank(player));
     }
     
     /**
@@ -224,15 +425,20 @@ public class PermissionsManager {
         private final int weight;
         private final List<String> permissions;
         private final List<String> inheritance;
+        private final Map<String, Boolean> effectivePermissions;
+        private final PermissionTrie permissionTrie;
         
         public RankData(String id, String name, String prefix, int weight, 
-                       List<String> permissions, List<String> inheritance) {
+                       List<String> permissions, List<String> inheritance,
+                       Map<String, Boolean> effectivePermissions, PermissionTrie permissionTrie) {
             this.id = id;
             this.name = name;
             this.prefix = prefix;
             this.weight = weight;
             this.permissions = permissions;
             this.inheritance = inheritance;
+            this.effectivePermissions = effectivePermissions;
+            this.permissionTrie = permissionTrie;
         }
         
         public String getId() { return id; }
@@ -241,5 +447,11 @@ public class PermissionsManager {
         public int getWeight() { return weight; }
         public List<String> getPermissions() { return permissions; }
         public List<String> getInheritance() { return inheritance; }
+        
+        /**
+         * @return The rank's permissions including inherited ones, shared and read-only
+         */
+        public Map<String, Boolean> getEffectivePermissions() { return effectivePermissions; }
+        public PermissionTrie getPermissionTrie() { return permissionTrie; }
     }
 }
@@ -39,14 +39,16 @@ public class PlaceholderManager extends PlaceholderExpansion {
     public String onPlaceholderRequest(Player player, String identifier) {
         if (player == null) return "";
         
+        // One snapshot per request, so a reload in between cannot mix two versions of a rank
+        RankRegistry ranks = plugin.getPermissionsManager().getRegistry();
+        String rankName = plugin.getPermissionsManager().getPlayerRank(player);
+        
         switch (identifier.toLowerCase()) {
             case "rank":
-                return plugin.getPermissionsManager().getRank(
-                    plugin.getPermissionsManager().getPlayerRank(player)
-                ).getName();
+                return ranks.get(rankName).getName();
                 
             case "prefix":
-                return plugin.getPermissionsManager().getPrefix(player);
+                return ranks.getPrefix(rankName);
                 
             case "grant_remaining":
                 List<Grant> grants = plugin.getGrantsManager().getActiveGrants(player.getUniqueId());
@@ -79,31 +81,25 @@ public class PlaceholderManager extends PlaceholderExpansion {
                 
             case "grants_count":
                 return String.valueOf(
-                    plugin.getGrantsManager().getGrantHistory(player.getUniqueId()).size()
+                    plugin.getGrantsManager().getGrantCount(player.getUniqueId())
                 );
                 
             case "sanctions_count":
                 return String.valueOf(
-                    plugin.getSanctionsManager().getSanctionHistory(player.getName()).size()
+                    plugin.getSanctionsManager().getSanctionCounts(player.getName()).getTotal()
                 );
                 
             case "warns_count":
                 return String.valueOf(
-                    plugin.getSanctionsManager().getSanctionHistory(player.getName()).stream()
-                        .filter(s -> s.getType() == SanctionsManager.SanctionType.WARN)
-                        .count()
+                    plugin.getSanctionsManager().getSanctionCounts(player.getName())
+                        .getCount(SanctionsManager.SanctionType.WARN)
                 );
                 
             case "rank_weight":
-                return String.valueOf(
-                    plugin.getPermissionsManager().getRank(
-                        plugin.getPermissionsManager().getPlayerRank(player)
-                    ).getWeight()
-                );
+                return String.valueOf(ranks.get(rankName).getWeight());
                 
             case "rank_display":
-                String rankName = plugin.getPermissionsManager().getPlayerRank(player);
-                PermissionsManager.RankData rank = plugin.getPermissionsManager().getRank(rankName);
+                PermissionsManager.RankData rank = ranks.get(rankName);
                 return rank.getPrefix() + rank.getName();
         }
         
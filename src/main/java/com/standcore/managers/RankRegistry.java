@@ -0,0 +1,120 @@
+package com.standcore.managers;
+
+import com.standcore.managers.PermissionsManager.RankData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the ranks loaded from ranks.yml. A reload builds a new
+ * registry and publishes it in one write, so readers on any thread, like async chat,
+ * see a consistent set of ranks without locking.
+ */
+public final class RankRegistry {
+    public static final RankRegistry EMPTY = new RankRegistry(Collections.<RankData>emptyList(), "default");
+
+    private final Map<String, RankData> ranks;
+    private final List<RankData> ranksByWeight;
+    private final Map<String, String> teamNames;
+    private final String defaultRank;
+
+    /**
+     * @param ranks The ranks
+     * @param defaultRank The id of the rank players without a grant have
+     */
+    public RankRegistry(Collection<RankData> ranks, String defaultRank) {
+        Map<String, RankData> byId = new HashMap<>();
+        Map<String, String> teams = new HashMap<>();
+        for (RankData rank : ranks) {
+            String id = rank.getId().toLowerCase();
+            byId.put(id, rank);
+
+            // Teams sort the tab list by weight
+            String teamName = "z" + String.format("%03d", rank.getWeight()) + rank.getId();
+            teams.put(id, teamName.length() > 16 ? teamName.substring(0, 16) : teamName);
+        }
+
+        List<RankData> byWeight = new ArrayList<>(ranks);
+        byWeight.sort((r1, r2) -> Integer.compare(r2.getWeight(), r1.getWeight()));
+
+        this.ranks = Collections.unmodifiableMap(byId);
+        this.ranksByWeight = Collections.unmodifiableList(byWeight);
+        this.teamNames = Collections.unmodifiableMap(teams);
+        this.defaultRank = defaultRank.toLowerCase();
+    }
+
+    /**
+     * Gets a rank
+     * @param rankName The rank name, in any case
+     * @return The rank or null if not found
+     */
+    public RankData get(String rankName) {
+        return ranks.get(rankName.toLowerCase());
+    }
+
+    /**
+     * Gets a rank, falling back to the default rank
+     * @param rankName The rank name, in any case
+     * @return The rank, the default rank if it does not exist, or null if neither does
+     */
+    public RankData find(String rankName) {
+        RankData rank = ranks.get(rankName.toLowerCase());
+        return rank != null ? rank : ranks.get(defaultRank);
+    }
+
+    /**
+     * Gets the prefix of a rank
+     * @param rankName The rank name, in any case
+     * @return The prefix or empty string if not found
+     */
+    public String getPrefix(String rankName) {
+        RankData rank = ranks.get(rankName.toLowerCase());
+        return rank != null ? rank.getPrefix() : "";
+    }
+
+    /**
+     * Gets the scoreboard team of a rank
+     * @param rank The rank
+     * @return The team name
+     */
+    public String getTeamName(RankData rank) {
+        return teamNames.get(rank.getId().toLowerCase());
+    }
+
+    /**
+     * @return The team names of every rank
+     */
+    public Collection<String> getTeamNames() {
+        return teamNames.values();
+    }
+
+    public boolean contains(String rankName) {
+        return ranks.containsKey(rankName.toLowerCase());
+    }
+
+    /**
+     * @return Map of rank id to rank data
+     */
+    public Map<String, RankData> getRanks() {
+        return ranks;
+    }
+
+    /**
+     * @return The ranks, highest weight first
+     */
+    public List<RankData> getRanksByWeight() {
+        return ranksByWeight;
+    }
+
+    public String getDefaultRank() {
+        return defaultRank;
+    }
+
+    public int size() {
+        return ranks.size();
+    }
+}
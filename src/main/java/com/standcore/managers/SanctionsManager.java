@@ -1,32 +1,60 @@
 package com.standcore.managers;
 
 import org.bukkit.BanList;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import com.standcore.StandCore;
+import com.standcore.storage.ActiveSanctionIndex;
+import com.standcore.storage.AddressIndex;
+import com.standcore.storage.BanFilter;
+import com.standcore.storage.CounterIndex;
+import com.standcore.storage.SanctionStore;
+import com.standcore.storage.WriteBehindJournal;
 import com.standcore.util.ConfigUtils;
+import com.standcore.util.ExpiryScheduler;
+import com.standcore.util.HistoryCache;
+import com.standcore.util.Settings;
 
-import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
 
 public class SanctionsManager {
+    // Player names never contain dots or colons, so anything matching is an address literal
+    private static final Pattern ADDRESS_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}|[0-9a-fA-F]*:[0-9a-fA-F:.]*");
+    
     private final StandCore plugin;
+    private final SanctionStore store;
+    private final CounterIndex counters;
+    private final ActiveSanctionIndex activeIndex;
+    private final ExpiryScheduler expiries;
     private final Map<UUID, Sanction> activeMutes;
     private final Map<UUID, List<Sanction>> sanctionHistory;
+    private final HistoryCache<String, Sanction> historyCache;
     
     public SanctionsManager(StandCore plugin) {
         this.plugin = plugin;
+        this.store = plugin.getStorageManager().getSanctionStore();
+        this.counters = plugin.getStorageManager().getCounterIndex();
+        this.activeIndex = plugin.getStorageManager().getActiveIndex();
+        this.expiries = plugin.getExpiryScheduler();
         this.activeMutes = new ConcurrentHashMap<>();
         this.sanctionHistory = new ConcurrentHashMap<>();
+        this.historyCache = new HistoryCache<>(
+            ConfigUtils.getSettings().getCache().getHistoryMaxPlayers(),
+            ConfigUtils.getSettings().getCache().getHistoryMaxRecords()
+        );
+        WriteBehindJournal journal = plugin.getStorageManager().getJournal();
+        if (journal != null) {
+            journal.onSanctionsWritten(historyCache::invalidate);
+        }
         
-        // Start mute expiration checker
-        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, 
-            this::checkMuteExpirations, 20L * 60, 20L * 60);
-        
-        // Load active mutes
+        // Load active mutes and schedule every active sanction to expire on time
         loadActiveMutes();
+        scheduleActiveExpiries();
     }
     
     /**
@@ -38,21 +66,13 @@ public class SanctionsManager {
      * @return true if successful
      */
     public boolean ban(String target, Player staff, String reason, long duration) {
-        Date expiry = duration == -1 ? null : new Date(System.currentTimeMillis() + duration);
-        
-        // Apply ban
-        plugin.getServer().getBanList(BanList.Type.NAME).addBan(
-            target, 
-            formatBanScreen(staff.getName(), reason, duration),
-            expiry, 
-            staff.getName()
-        );
-        
         // Kick if online
         Player targetPlayer = plugin.getServer().getPlayer(target);
         if (targetPlayer != null) {
             targetPlayer.kickPlayer(formatBanScreen(staff.getName(), reason, duration));
         }
+        UUID targetUUID = targetPlayer != null ? targetPlayer.getUniqueId() 
+            : plugin.getServer().getOfflinePlayer(target).getUniqueId();
         
         // Save to history
         Sanction sanction = new Sanction(
@@ -67,8 +87,32 @@ public class SanctionsManager {
         );
         saveSanction(target, sanction);
         
+        // Apply ban, enforced by UUID at login so a name change does not get around it
+        activeIndex.put(targetUUID, sanction);
+        scheduleBanExpiry(targetUUID, sanction);
+        
+        // Flag the accounts linked to this one. Only direct alts are banned along with it, a
+        // cluster can span a whole shared address range, and only when there are few of them
+        AltsManager alts = plugin.getAltsManager();
+        alts.flagCluster(targetUUID);
+        if (alts.isClusterBanEnabled()) {
+            List<AddressIndex.Alt> linked = alts.getAlts(targetUUID);
+            if (linked.size() > alts.getMaxLinkedBans()) {
+                staff.sendMessage(ConfigUtils.getMessage("sanctions.ban.linked-skipped",
+                    "player", target,
+                    "count", String.valueOf(linked.size())
+                ));
+            } else {
+                for (AddressIndex.Alt alt : linked) {
+                    if (getActiveBan(alt.getUuid()) == null) {
+                        banLinked(alt.getUuid(), target, sanction);
+                    }
+                }
+            }
+        }
+        
         // Broadcast if enabled
-        if (ConfigUtils.getBoolean("config", "settings.sanctions.broadcast-bans", true)) {
+        if (ConfigUtils.getSettings().getSanctions().isBroadcastBans()) {
             plugin.getServer().broadcastMessage(ConfigUtils.getMessage("sanctions.ban.broadcast",
                 "player", target,
                 "staff", staff.getName(),
@@ -79,6 +123,82 @@ public class SanctionsManager {
         return true;
     }
     
+    /**
+     * Bans an account linked to a banned player
+     * @param uuid The linked account's UUID
+     * @param target The banned player's name
+     * @param ban The player's ban
+     */
+    private void banLinked(UUID uuid, String target, Sanction ban) {
+        String name = plugin.getAltsManager().getName(uuid);
+        Sanction sanction = new Sanction(
+            UUID.randomUUID(),
+            SanctionType.BAN,
+            name,
+            ban.getStaff(),
+            ban.getStaffUUID(),
+            ban.getReason() + " (linked to " + target + ")",
+            ban.getTimestamp(),
+            ban.getExpiration()
+        );
+        saveSanction(name, sanction);
+        activeIndex.put(uuid, sanction);
+        scheduleBanExpiry(uuid, sanction);
+        
+        Player online = plugin.getServer().getPlayer(uuid);
+        if (online != null) {
+            online.kickPlayer(getBanScreen(sanction));
+        }
+    }
+    
+    /**
+     * Bans an address, covering every account that connects from it
+     * @param target The player name or address the ban was issued against
+     * @param address The address key, see {@link AddressIndex#key}
+     * @param staff The staff member
+     * @param reason The reason
+     * @param duration Duration in milliseconds (-1 for permanent)
+     * @return true if successful
+     */
+    public boolean banAddress(String target, long address, Player staff, String reason, long duration) {
+        Sanction sanction = new Sanction(
+            UUID.randomUUID(),
+            SanctionType.BAN,
+            target,
+            staff.getName(),
+            staff.getUniqueId(),
+            reason,
+            System.currentTimeMillis(),
+            duration == -1 ? -1 : System.currentTimeMillis() + duration
+        );
+        
+        // A bare address has no player to file the ban under
+        if (!ADDRESS_LITERAL.matcher(target).matches()) {
+            saveSanction(target, sanction);
+        }
+        activeIndex.putAddressBan(address, sanction);
+        scheduleAddressBanExpiry(address, sanction);
+        
+        // Kick everyone on the address
+        String screen = getBanScreen(sanction);
+        for (Player online : plugin.getServer().getOnlinePlayers()) {
+            if (online.getAddress() != null && AddressIndex.key(online.getAddress().getAddress()) == address) {
+                online.kickPlayer(screen);
+            }
+        }
+        
+        // Broadcast if enabled
+        if (ConfigUtils.getSettings().getSanctions().isBroadcastBans()) {
+            plugin.getServer().broadcastMessage(ConfigUtils.getMessage("sanctions.banip.broadcast",
+                "player", target,
+                "staff", staff.getName(),
+                "reason", reason
+            ));
+        }
+        
+        return true;
+    }
+    
     /**
      * Mutes a player
      * @param target The target player
@@ -88,13 +208,26 @@ public class SanctionsManager {
      * @return true if successful
      */
     public boolean mute(Player target, Player staff, String reason, long duration) {
+        return mute(target, staff.getName(), staff.getUniqueId(), reason, duration);
+    }
+    
+    /**
+     * Mutes a player on behalf of someone who is not a player, like the chat limiter
+     * @param target The target player
+     * @param staffName The name recorded as the staff member
+     * @param staffId The UUID recorded as the staff member
+     * @param reason The reason
+     * @param duration The duration in milliseconds (-1 for permanent)
+     * @return true if successful
+     */
+    public boolean mute(Player target, String staffName, UUID staffId, String reason, long duration) {
         // Create mute
         Sanction mute = new Sanction(
             UUID.randomUUID(),
             SanctionType.MUTE,
             target.getName(),
-            staff.getName(),
-            staff.getUniqueId(),
+            staffName,
+            staffId,
             reason,
             System.currentTimeMillis(),
             duration == -1 ? -1 : System.currentTimeMillis() + duration
@@ -102,22 +235,24 @@ public class SanctionsManager {
         
         // Add to active mutes
         activeMutes.put(target.getUniqueId(), mute);
+        activeIndex.put(target.getUniqueId(), mute);
+        scheduleMuteExpiry(target.getUniqueId(), mute);
         
         // Save to history
         saveSanction(target.getName(), mute);
         
         // Notify target
         target.sendMessage(ConfigUtils.getMessage("sanctions.mute.message",
-            "staff", staff.getName(),
+            "staff", staffName,
             "reason", reason,
             "duration", formatDuration(duration)
         ));
         
         // Broadcast if enabled
-        if (ConfigUtils.getBoolean("config", "settings.sanctions.broadcast-mutes", true)) {
+        if (ConfigUtils.getSettings().getSanctions().isBroadcastMutes()) {
             plugin.getServer().broadcastMessage(ConfigUtils.getMessage("sanctions.mute.broadcast",
                 "player", target.getName(),
-                "staff", staff.getName(),
+                "staff", staffName,
                 "reason", reason
             ));
         }
@@ -155,7 +290,7 @@ public class SanctionsManager {
         ));
         
         // Broadcast if enabled
-        if (ConfigUtils.getBoolean("config", "settings.sanctions.broadcast-kicks", true)) {
+        if (ConfigUtils.getSettings().getSanctions().isBroadcastKicks()) {
             plugin.getServer().broadcastMessage(ConfigUtils.getMessage("sanctions.kick.broadcast",
                 "player", target.getName(),
                 "staff", staff.getName(),
@@ -174,13 +309,25 @@ public class SanctionsManager {
      * @return true if successful
      */
     public boolean warn(Player target, Player staff, String reason) {
+        return warn(target, staff.getName(), staff.getUniqueId(), reason);
+    }
+    
+    /**
+     * Warns a player on behalf of someone who is not a player, like the chat filter
+     * @param target The target player
+     * @param staffName The name recorded as the staff member
+     * @param staffId The UUID recorded as the staff member
+     * @param reason The reason
+     * @return true if successful
+     */
+    public boolean warn(Player target, String staffName, UUID staffId, String reason) {
         // Create warning record
         Sanction warning = new Sanction(
             UUID.randomUUID(),
             SanctionType.WARN,
             target.getName(),
-            staff.getName(),
-            staff.getUniqueId(),
+            staffName,
+            staffId,
             reason,
             System.currentTimeMillis(),
             -1
@@ -191,15 +338,15 @@ public class SanctionsManager {
         
         // Notify target
         target.sendMessage(ConfigUtils.getMessage("sanctions.warn.message",
-            "staff", staff.getName(),
+            "staff", staffName,
             "reason", reason
         ));
         
         // Broadcast if enabled
-        if (ConfigUtils.getBoolean("config", "settings.sanctions.broadcast-warns", false)) {
+        if (ConfigUtils.getSettings().getSanctions().isBroadcastWarns()) {
             plugin.getServer().broadcastMessage(ConfigUtils.getMessage("sanctions.warn.broadcast",
                 "player", target.getName(),
-                "staff", staff.getName(),
+                "staff", staffName,
                 "reason", reason
             ));
         }
@@ -214,7 +361,7 @@ public class SanctionsManager {
      * @return true if successful
      */
     public boolean unban(String target, Player staff) {
-        if (!plugin.getServer().getBanList(BanList.Type.NAME).isBanned(target)) {
+        if (!isBanned(target)) {
             staff.sendMessage(ConfigUtils.getMessage("sanctions.unban.not-banned",
                 "player", target
             ));
@@ -222,10 +369,53 @@ public class SanctionsManager {
         }
         
         // Remove ban
-        plugin.getServer().getBanList(BanList.Type.NAME).pardon(target);
+        UUID banned = findBan(target);
+        if (banned != null) {
+            Sanction ban = activeIndex.get(banned, SanctionType.BAN);
+            if (ban != null) {
+                expiries.cancel(ban.getId());
+            }
+            activeIndex.remove(banned, SanctionType.BAN);
+            plugin.getAltsManager().unflagCluster(banned);
+        }
+        
+        // Bans issued before StandCore kept its own ban table live in the server's name ban list
+        if (plugin.getServer().getBanList(BanList.Type.NAME).isBanned(target)) {
+            plugin.getServer().getBanList(BanList.Type.NAME).pardon(target);
+        }
+        
+        // Broadcast if enabled
+        broadcastUnban(ConfigUtils.getMessage("sanctions.unban.broadcast",
+            "player", target,
+            "staff", staff.getName()
+        ));
+        
+        return true;
+    }
+    
+    /**
+     * Lifts an address ban
+     * @param target The player name or address the ban was looked up by
+     * @param address The address key
+     * @param staff The staff member
+     * @return true if successful
+     */
+    public boolean unbanAddress(String target, long address, Player staff) {
+        if (getAddressBan(address) == null) {
+            staff.sendMessage(ConfigUtils.getMessage("sanctions.unbanip.not-banned",
+                "player", target
+            ));
+            return false;
+        }
+        
+        Sanction ban = activeIndex.getAddressBan(address);
+        if (ban != null) {
+            expiries.cancel(ban.getId());
+        }
+        activeIndex.removeAddressBan(address);
         
         // Broadcast if enabled
-        plugin.getServer().broadcastMessage(ConfigUtils.getMessage("sanctions.unban.broadcast",
+        broadcastUnban(ConfigUtils.getMessage("sanctions.unbanip.broadcast",
             "player", target,
             "staff", staff.getName()
         ));
@@ -233,6 +423,21 @@ public class SanctionsManager {
         return true;
     }
     
+    /**
+     * Announces a lifted ban if enabled, to everyone or only to holders of the configured permission
+     * @param message The message
+     */
+    private void broadcastUnban(String message) {
+        Settings.Sanctions settings = ConfigUtils.getSettings().getSanctions();
+        if (!settings.isBroadcastUnbans()) return;
+        
+        if (settings.getUnbanBroadcastPermission().isEmpty()) {
+            plugin.getServer().broadcastMessage(message);
+        } else {
+            plugin.getServer().broadcast(message, settings.getUnbanBroadcastPermission());
+        }
+    }
+    
     /**
      * Unmutes a player
      * @param target The target player
@@ -248,7 +453,11 @@ public class SanctionsManager {
         }
         
         // Remove mute
-        activeMutes.remove(target.getUniqueId());
+        Sanction mute = activeMutes.remove(target.getUniqueId());
+        if (mute != null) {
+            expiries.cancel(mute.getId());
+        }
+        activeIndex.remove(target.getUniqueId(), SanctionType.MUTE);
         
         // Notify target
         target.sendMessage(ConfigUtils.getMessage("sanctions.unmute.message",
@@ -264,6 +473,126 @@ public class SanctionsManager {
         return true;
     }
     
+    /**
+     * Checks if a player is banned
+     * @param target The player name
+     * @return true if banned
+     */
+    public boolean isBanned(String target) {
+        return findBan(target) != null 
+            || plugin.getServer().getBanList(BanList.Type.NAME).isBanned(target);
+    }
+    
+    /**
+     * Gets a player's active ban, safe to call from any thread
+     * @param uuid The player's UUID
+     * @return The ban or null if not banned
+     */
+    public Sanction getActiveBan(UUID uuid) {
+        Sanction ban = activeIndex.get(uuid, SanctionType.BAN);
+        if (ban == null) return null;
+        
+        // Check if expired
+        if (ban.getExpiration() != -1 && ban.getExpiration() <= System.currentTimeMillis()) {
+            activeIndex.remove(uuid, SanctionType.BAN);
+            return null;
+        }
+        
+        return ban;
+    }
+    
+    /**
+     * Gets the ban a logging in player is held by, skipping the lookup for players
+     * the ban filter rules out
+     * @param uuid The player's UUID
+     * @param address The player's address
+     * @return The ban or null if not banned
+     */
+    public Sanction getLoginBan(UUID uuid, InetAddress address) {
+        long key = AddressIndex.key(address);
+        BanFilter filter = activeIndex.getBanFilter();
+        if (!filter.mightBeBanned(uuid, key)) {
+            return null;
+        }
+        
+        Sanction ban = getActiveBan(uuid);
+        if (ban == null) {
+            ban = getAddressBan(key);
+        }
+        if (ban == null) {
+            filter.recordFalsePositive();
+        }
+        return ban;
+    }
+    
+    /**
+     * Gets the active ban on an address, safe to call from any thread
+     * @param address The address key
+     * @return The ban or null if the address is not banned
+     */
+    public Sanction getAddressBan(long address) {
+        Sanction ban = activeIndex.getAddressBan(address);
+        if (ban == null) return null;
+        
+        // Check if expired
+        if (ban.getExpiration() != -1 && ban.getExpiration() <= System.currentTimeMillis()) {
+            activeIndex.removeAddressBan(address);
+            return null;
+        }
+        
+        return ban;
+    }
+    
+    /**
+     * Resolves the address a ban command refers to
+     * @param target An address literal, or a player whose current or last address is used
+     * @return The address key or null if it cannot be resolved
+     */
+    public Long resolveAddress(String target) {
+        if (ADDRESS_LITERAL.matcher(target).matches()) {
+            try {
+                // Literals are parsed without a lookup
+                return AddressIndex.key(InetAddress.getByName(target));
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+        
+        Player targetPlayer = plugin.getServer().getPlayer(target);
+        if (targetPlayer != null && targetPlayer.getAddress() != null) {
+            return AddressIndex.key(targetPlayer.getAddress().getAddress());
+        }
+        return plugin.getStorageManager().getAddressIndex()
+            .getLastAddress(plugin.getServer().getOfflinePlayer(target).getUniqueId());
+    }
+    
+    /**
+     * Formats the screen shown to a banned player trying to join
+     * @param ban The active ban
+     * @return The formatted screen
+     */
+    public String getBanScreen(Sanction ban) {
+        return formatBanScreen(ban.getStaff(), ban.getReason(), ban.isPermanent() ? -1 : ban.getRemaining());
+    }
+    
+    /**
+     * Finds the UUID a player name is banned under
+     * @param target The player name
+     * @return The banned UUID or null if not banned
+     */
+    private UUID findBan(String target) {
+        Player targetPlayer = plugin.getServer().getPlayer(target);
+        UUID uuid = targetPlayer != null ? targetPlayer.getUniqueId() 
+            : plugin.getServer().getOfflinePlayer(target).getUniqueId();
+        if (getActiveBan(uuid) != null) {
+            return uuid;
+        }
+        
+        // The name may have been banned before its owner changed it
+        UUID previous = activeIndex.findByTarget(target, SanctionType.BAN);
+        return previous != null && getActiveBan(previous) != null ? previous : null;
+    }
+    
     /**
      * Checks if a player is muted
      * @param player The player
@@ -276,6 +605,7 @@ public class SanctionsManager {
         // Check if expired
         if (mute.getExpiration() != -1 && mute.getExpiration() <= System.currentTimeMillis()) {
             activeMutes.remove(player.getUniqueId());
+            activeIndex.remove(player.getUniqueId(), SanctionType.MUTE);
             return false;
         }
         
@@ -288,45 +618,42 @@ public class SanctionsManager {
      * @return The mute or null if not muted
      */
     public Sanction getActiveMute(Player player) {
-        return activeMutes.get(player.getUniqueId());
+        return getActiveMute(player.getUniqueId());
+    }
+    
+    /**
+     * Gets a player's active mute, works for players who are not online yet
+     * @param uuid The player's UUID
+     * @return The mute or null if not muted
+     */
+    public Sanction getActiveMute(UUID uuid) {
+        return activeMutes.get(uuid);
     }
     
     /**
      * Gets a player's sanction history
      * @param playerName The player name
-     * @return List of sanctions
+     * @return List of sanctions (newest first, read-only)
      */
     public List<Sanction> getSanctionHistory(String playerName) {
-        File file = new File(plugin.getDataFolder(), "data/sanctions/" + playerName + ".yml");
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        
-        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-        List<Sanction> sanctions = new ArrayList<>();
-        
-        ConfigurationSection sanctionsSection = config.getConfigurationSection("sanctions");
-        if (sanctionsSection != null) {
-            for (String key : sanctionsSection.getKeys(false)) {
-                ConfigurationSection sanctionSection = sanctionsSection.getConfigurationSection(key);
-                if (sanctionSection == null) continue;
-                
-                sanctions.add(new Sanction(
-                    UUID.fromString(key),
-                    SanctionType.valueOf(sanctionSection.getString("type")),
-                    sanctionSection.getString("target"),
-                    sanctionSection.getString("staff"),
-                    UUID.fromString(sanctionSection.getString("staff-uuid")),
-                    sanctionSection.getString("reason"),
-                    sanctionSection.getLong("timestamp"),
-                    sanctionSection.getLong("expiration")
-                ));
-            }
-        }
-        
-        // Sort by date (newest first)
-        sanctions.sort((s1, s2) -> Long.compare(s2.getTimestamp(), s1.getTimestamp()));
-        return sanctions;
+        return historyCache.get(playerName, store::getSanctionHistory);
+    }
+    
+    /**
+     * Gets a player's sanction counts without loading their history
+     * @param playerName The player name
+     * @return The counts per sanction type
+     */
+    public CounterIndex.SanctionCounts getSanctionCounts(String playerName) {
+        return counters.getSanctionCounts(playerName, store::getSanctionHistory);
+    }
+    
+    /**
+     * Gets the sanction history cache
+     * @return The cache
+     */
+    public HistoryCache<String, Sanction> getHistoryCache() {
+        return historyCache;
     }
     
     /**
@@ -335,88 +662,79 @@ public class SanctionsManager {
      * @param sanction The sanction
      */
     private void saveSanction(String playerName, Sanction sanction) {
-        File file = new File(plugin.getDataFolder(), "data/sanctions/" + playerName + ".yml");
-        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-        
-        ConfigurationSection sanctionSection = config.createSection(
-            "sanctions." + sanction.getId().toString()
-        );
-        sanctionSection.set("type", sanction.getType().name());
-        sanctionSection.set("target", sanction.getTarget());
-        sanctionSection.set("staff", sanction.getStaff());
-        sanctionSection.set("staff-uuid", sanction.getStaffUUID().toString());
-        sanctionSection.set("reason", sanction.getReason());
-        sanctionSection.set("timestamp", sanction.getTimestamp());
-        sanctionSection.set("expiration", sanction.getExpiration());
-        
+        // Count first, a player counted from history for the first time must not see this sanction twice
+        counters.addSanction(playerName, sanction, store::getSanctionHistory);
         try {
-            config.save(file);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to save sanction history for " + playerName);
-            e.printStackTrace();
+            store.saveSanction(playerName, sanction);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save sanction history for " + playerName, e);
         }
+        historyCache.invalidate(playerName);
     }
     
     /**
-     * Loads active mutes from files
+     * Loads active mutes for every player from the active sanction index
      */
     private void loadActiveMutes() {
-        File sanctionsDir = new File(plugin.getDataFolder(), "data/sanctions");
-        if (!sanctionsDir.exists()) return;
-        
-        for (File file : sanctionsDir.listFiles()) {
-            if (!file.getName().endsWith(".yml")) continue;
-            
-            FileConfiguration config = YamlConfiguration.loadConfiguration(file);
-            ConfigurationSection sanctionsSection = config.getConfigurationSection("sanctions");
-            if (sanctionsSection == null) continue;
-            
-            for (String key : sanctionsSection.getKeys(false)) {
-                ConfigurationSection sanctionSection = sanctionsSection.getConfigurationSection(key);
-                if (sanctionSection == null) continue;
-                
-                if (sanctionSection.getString("type").equals("MUTE")) {
-                    long expiration = sanctionSection.getLong("expiration");
-                    if (expiration == -1 || expiration > System.currentTimeMillis()) {
-                        String target = sanctionSection.getString("target");
-                        Player player = plugin.getServer().getPlayer(target);
-                        if (player != null) {
-                            activeMutes.put(player.getUniqueId(), new Sanction(
-                                UUID.fromString(key),
-                                SanctionType.MUTE,
-                                target,
-                                sanctionSection.getString("staff"),
-                                UUID.fromString(sanctionSection.getString("staff-uuid")),
-                                sanctionSection.getString("reason"),
-                                sanctionSection.getLong("timestamp"),
-                                expiration
-                            ));
-                        }
-                    }
-                }
-            }
+        activeMutes.putAll(activeIndex.getAll(SanctionType.MUTE));
+    }
+    
+    /**
+     * Schedules the expiry of every active sanction in the index, so deadlines survive a restart
+     */
+    private void scheduleActiveExpiries() {
+        for (Map.Entry<UUID, Sanction> entry : activeIndex.getAll(SanctionType.MUTE).entrySet()) {
+            scheduleMuteExpiry(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<UUID, Sanction> entry : activeIndex.getAll(SanctionType.BAN).entrySet()) {
+            scheduleBanExpiry(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Long, Sanction> entry : activeIndex.getAddressBans().entrySet()) {
+            scheduleAddressBanExpiry(entry.getKey(), entry.getValue());
         }
     }
     
     /**
-     * Checks for expired mutes
+     * Lifts a mute at its expiration
+     * @param uuid The muted player's UUID
+     * @param mute The mute
      */
-    private void checkMuteExpirations() {
-        long now = System.currentTimeMillis();
+    private void scheduleMuteExpiry(UUID uuid, Sanction mute) {
+        if (mute.isPermanent()) return;
         
-        activeMutes.entrySet().removeIf(entry -> {
-            Sanction mute = entry.getValue();
-            if (mute.getExpiration() != -1 && mute.getExpiration() <= now) {
-                Player player = plugin.getServer().getPlayer(entry.getKey());
+        expiries.schedule(mute.getId(), mute.getExpiration(), () -> {
+            activeIndex.remove(uuid, mute);
+            if (activeMutes.remove(uuid, mute)) {
+                Player player = plugin.getServer().getPlayer(uuid);
                 if (player != null) {
                     player.sendMessage(ConfigUtils.getMessage("sanctions.mute.expired"));
                 }
-                return true;
             }
-            return false;
         });
     }
     
+    /**
+     * Lifts a ban at its expiration
+     * @param uuid The banned player's UUID
+     * @param ban The ban
+     */
+    private void scheduleBanExpiry(UUID uuid, Sanction ban) {
+        if (ban.isPermanent()) return;
+        
+        expiries.schedule(ban.getId(), ban.getExpiration(), () -> activeIndex.remove(uuid, ban));
+    }
+    
+    /**
+     * Lifts an address ban at its expiration
+     * @param address The address key
+     * @param ban The ban
+     */
+    private void scheduleAddressBanExpiry(long address, Sanction ban) {
+        if (ban.isPermanent()) return;
+        
+        expiries.schedule(ban.getId(), ban.getExpiration(), () -> activeIndex.removeAddressBan(address, ban));
+    }
+    
     /**
      * Formats the ban screen
      * @param staff The staff member
@@ -0,0 +1,104 @@
+package com.standcore.managers;
+
+import org.bukkit.scheduler.BukkitTask;
+import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+import com.standcore.util.ConfigUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SessionManager {
+    private final StandCore plugin;
+    private final Map<UUID, PlayerSession> sessions;
+    private final Map<UUID, BukkitTask> evictions;
+
+    public SessionManager(StandCore plugin) {
+        this.plugin = plugin;
+        this.sessions = new ConcurrentHashMap<>();
+        this.evictions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Loads a player's session, reusing the one kept from a recent quit.
+     * Called off the main thread while the player is logging in.
+     * @param uuid The player's UUID
+     * @param playerName The player's name
+     * @return The session
+     */
+    public PlayerSession load(UUID uuid, String playerName) {
+        BukkitTask eviction = evictions.remove(uuid);
+        if (eviction != null) {
+            eviction.cancel();
+        }
+
+        return sessions.computeIfAbsent(uuid, k -> {
+            long now = System.currentTimeMillis();
+
+            // Oldest first, the same order GrantsManager keeps active grants in
+            List<Grant> activeGrants = new ArrayList<>();
+            for (Grant grant : plugin.getGrantsManager().getGrantHistory(uuid)) {
+                if (grant.getExpiration() == -1 || grant.getExpiration() > now) {
+                    activeGrants.add(grant);
+                }
+            }
+            Collections.reverse(activeGrants);
+
+            // Count history now so placeholders read the counter index instead of the disk
+            plugin.getSanctionsManager().getSanctionCounts(playerName);
+            plugin.getGrantsManager().getGrantCount(uuid);
+
+            return new PlayerSession(uuid, Collections.unmodifiableList(activeGrants));
+        });
+    }
+
+    /**
+     * Gets a loaded session
+     * @param uuid The player's UUID
+     * @return The session or null if it has not been loaded
+     */
+    public PlayerSession get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    /**
+     * Drops a player's session once the grace period has passed, unless they rejoin
+     * @param uuid The player's UUID
+     */
+    public void scheduleEviction(UUID uuid) {
+        long grace = ConfigUtils.getSettings().getSessions().getGracePeriodTicks();
+
+        BukkitTask task = plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            evictions.remove(uuid);
+            if (plugin.getServer().getPlayer(uuid) == null) {
+                sessions.remove(uuid);
+                plugin.getGrantsManager().unloadActiveGrants(uuid);
+            }
+        }, grace);
+
+        BukkitTask previous = evictions.put(uuid, task);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * State loaded for a player before they join
+     */
+    public static class PlayerSession {
+        private final UUID uuid;
+        private final List<Grant> activeGrants;
+
+        public PlayerSession(UUID uuid, List<Grant> activeGrants) {
+            this.uuid = uuid;
+            this.activeGrants = activeGrants;
+        }
+
+        public UUID getUuid() { return uuid; }
+        public List<Grant> getActiveGrants() { return activeGrants; }
+    }
+}
@@ -75,7 +75,7 @@ public class StaffModeManager {
         player.sendMessage(ConfigUtils.getMessage("staff.mode-enabled"));
         
         // Enable vanish if configured
-        if (ConfigUtils.getBoolean("config", "settings.staff-mode.join-with-vanish", false)) {
+        if (ConfigUtils.getSettings().getStaffMode().isJoinWithVanish()) {
             setVanished(player, true);
         }
     }
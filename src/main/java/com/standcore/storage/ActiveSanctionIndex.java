@@ -0,0 +1,401 @@
+package com.standcore.storage;
+
+import org.bukkit.BanList;
+import org.bukkit.OfflinePlayer;
+import com.standcore.StandCore;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.managers.SanctionsManager.SanctionType;
+import com.standcore.util.ConfigUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Currently active mutes and bans keyed by player UUID, and bans keyed by address,
+ * persisted in data/active.dat.
+ * The file only ever holds active sanctions, so loading it does not depend on how
+ * much history the server has. Every change rewrites it atomically off the main thread.
+ */
+public class ActiveSanctionIndex {
+    private static final int MAGIC = 0x53434149;
+    private static final int VERSION = 2;
+
+    private final StandCore plugin;
+    private final File file;
+    private final Map<UUID, Sanction> mutes;
+    private final Map<UUID, Sanction> bans;
+    private final Map<Long, Sanction> addressBans;
+    private final AtomicBoolean saveQueued;
+    private final BanFilter banFilter;
+
+    public ActiveSanctionIndex(StandCore plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "data/active.dat");
+        this.mutes = new ConcurrentHashMap<>();
+        this.bans = new ConcurrentHashMap<>();
+        this.addressBans = new ConcurrentHashMap<>();
+        this.saveQueued = new AtomicBoolean();
+        this.banFilter = new BanFilter(ConfigUtils.getSettings().getCache().getBanFilterFalsePositiveRate());
+    }
+
+    /**
+     * Loads the index, rebuilding it from the sanction store the first time
+     * @param store The sanction store
+     */
+    public void load(SanctionStore store) {
+        long start = System.currentTimeMillis();
+        boolean firstStart = !file.exists();
+
+        if (!firstStart) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                int version = in.readInt() == MAGIC ? in.readInt() : -1;
+                if (version != 1 && version != VERSION) {
+                    throw new IOException("Unknown index format");
+                }
+
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    UUID uuid = new UUID(in.readLong(), in.readLong());
+                    byte[] record = new byte[in.readInt()];
+                    in.readFully(record);
+                    Sanction sanction = LogSanctionStore.decode(ByteBuffer.wrap(record)).sanction;
+                    map(sanction.getType()).put(uuid, sanction);
+                }
+
+                // Version 1 predates address bans
+                int addressCount = version == 1 ? 0 : in.readInt();
+                for (int i = 0; i < addressCount; i++) {
+                    long address = in.readLong();
+                    byte[] record = new byte[in.readInt()];
+                    in.readFully(record);
+                    addressBans.put(address, LogSanctionStore.decode(ByteBuffer.wrap(record)).sanction);
+                }
+
+                pruneExpired(start);
+                rebuildBanFilter();
+                plugin.getLogger().info("Loaded " + mutes.size() + " active mutes, " + bans.size()
+                    + " active bans and " + addressBans.size() + " address bans in "
+                    + (System.currentTimeMillis() - start) + "ms");
+                return;
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load active sanction index, rebuilding it", e);
+                mutes.clear();
+                bans.clear();
+                addressBans.clear();
+            }
+        }
+
+        rebuild(store, start, firstStart);
+    }
+
+    /**
+     * Rebuilds the index from the sanction store. Names are resolved through the
+     * players the server already knows, so this never blocks on a profile lookup.
+     * History does not record which address a ban covered, so address bans are lost.
+     * @param firstStart true when upgrading from a version that kept bans in the server's
+     *                   ban list, whose unban only pardoned the ban list and left history alone
+     */
+    private void rebuild(SanctionStore store, long now, boolean firstStart) {
+        BanList banList = plugin.getServer().getBanList(BanList.Type.NAME);
+        Map<String, UUID> known = new HashMap<>();
+        for (OfflinePlayer player : plugin.getServer().getOfflinePlayers()) {
+            if (player.getName() != null) {
+                known.put(player.getName().toLowerCase(), player.getUniqueId());
+            }
+        }
+
+        int skipped = 0;
+        int pardoned = 0;
+        for (SanctionType type : new SanctionType[] { SanctionType.MUTE, SanctionType.BAN }) {
+            for (Sanction sanction : store.getActiveSanctions(type, now)) {
+                // A ban already pardoned before the upgrade is still active in history
+                if (firstStart && type == SanctionType.BAN && !banList.isBanned(sanction.getTarget())) {
+                    pardoned++;
+                    continue;
+                }
+                UUID uuid = known.get(sanction.getTarget().toLowerCase());
+                if (uuid == null) {
+                    skipped++;
+                    continue;
+                }
+                Sanction current = map(type).get(uuid);
+                if (current == null || current.getTimestamp() < sanction.getTimestamp()) {
+                    map(type).put(uuid, sanction);
+                }
+            }
+        }
+
+        if (skipped > 0) {
+            plugin.getLogger().warning("Skipped " + skipped + " active sanctions for unknown players");
+        }
+        if (firstStart) {
+            plugin.getLogger().info("Migrated " + bans.size() + " bans from the server ban list, skipped "
+                + pardoned + " that were already pardoned");
+        }
+        plugin.getLogger().info("Rebuilt active sanction index in " + (System.currentTimeMillis() - now) + "ms");
+        rebuildBanFilter();
+        save();
+    }
+
+    /**
+     * Gets a player's active sanction of a type
+     * @param uuid The player's UUID
+     * @param type MUTE or BAN
+     * @return The sanction or null if none is active
+     */
+    public Sanction get(UUID uuid, SanctionType type) {
+        return map(type).get(uuid);
+    }
+
+    /**
+     * Gets every active sanction of a type
+     * @param type MUTE or BAN
+     * @return Map of player UUID to sanction
+     */
+    public Map<UUID, Sanction> getAll(SanctionType type) {
+        return new HashMap<>(map(type));
+    }
+
+    /**
+     * Finds the player a sanction was issued against by the name used at the time
+     * @param target The player name
+     * @param type MUTE or BAN
+     * @return The player's UUID or null if no sanction matches
+     */
+    public UUID findByTarget(String target, SanctionType type) {
+        for (Map.Entry<UUID, Sanction> entry : map(type).entrySet()) {
+            if (entry.getValue().getTarget().equalsIgnoreCase(target)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records an active mute or ban
+     * @param uuid The player's UUID
+     * @param sanction The sanction
+     */
+    public void put(UUID uuid, Sanction sanction) {
+        Sanction previous = map(sanction.getType()).put(uuid, sanction);
+        if (sanction.getType() == SanctionType.BAN && previous == null) {
+            banFilter.add(uuid);
+            checkBanFilter();
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Removes a player's active sanction of a type
+     * @param uuid The player's UUID
+     * @param type MUTE or BAN
+     */
+    public void remove(UUID uuid, SanctionType type) {
+        if (map(type).remove(uuid) != null) {
+            if (type == SanctionType.BAN) {
+                banFilter.markStale();
+                checkBanFilter();
+            }
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Gets the active ban on an address
+     * @param address The address key, see {@link AddressIndex#key}
+     * @return The ban or null if the address is not banned
+     */
+    public Sanction getAddressBan(long address) {
+        return addressBans.get(address);
+    }
+
+    /**
+     * Gets every active address ban
+     * @return Map of address key to ban
+     */
+    public Map<Long, Sanction> getAddressBans() {
+        return new HashMap<>(addressBans);
+    }
+
+    /**
+     * Records an address ban
+     * @param address The address key
+     * @param sanction The ban
+     */
+    public void putAddressBan(long address, Sanction sanction) {
+        if (addressBans.put(address, sanction) == null) {
+            banFilter.add(address);
+            checkBanFilter();
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Lifts an address ban
+     * @param address The address key
+     */
+    public void removeAddressBan(long address) {
+        if (addressBans.remove(address) != null) {
+            banFilter.markStale();
+            checkBanFilter();
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Removes a sanction if it is still the active one, so an expiry cannot remove its replacement
+     * @param uuid The player's UUID
+     * @param sanction The sanction
+     * @return true if it was removed
+     */
+    public boolean remove(UUID uuid, Sanction sanction) {
+        if (!map(sanction.getType()).remove(uuid, sanction)) {
+            return false;
+        }
+        if (sanction.getType() == SanctionType.BAN) {
+            banFilter.markStale();
+            checkBanFilter();
+        }
+        scheduleSave();
+        return true;
+    }
+
+    /**
+     * Lifts an address ban if it is still the active one
+     * @param address The address key
+     * @param sanction The ban
+     */
+    public void removeAddressBan(long address, Sanction sanction) {
+        if (addressBans.remove(address, sanction)) {
+            banFilter.markStale();
+            checkBanFilter();
+            scheduleSave();
+        }
+    }
+
+    /**
+     * Removes every expired sanction
+     * @param now The current time
+     */
+    public void pruneExpired(long now) {
+        boolean changed = mutes.values().removeIf(s -> s.getExpiration() != -1 && s.getExpiration() <= now);
+        boolean bansExpired = bans.values().removeIf(s -> expireBan(s, now));
+        bansExpired |= addressBans.values().removeIf(s -> expireBan(s, now));
+        if (bansExpired) {
+            changed = true;
+            checkBanFilter();
+        }
+        if (changed) {
+            scheduleSave();
+        }
+    }
+
+    private boolean expireBan(Sanction ban, long now) {
+        if (ban.getExpiration() != -1 && ban.getExpiration() <= now) {
+            banFilter.markStale();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the filter checked before ban lookups at login
+     * @return The ban filter
+     */
+    public BanFilter getBanFilter() {
+        return banFilter;
+    }
+
+    /**
+     * Rebuilds the ban filter from the active bans
+     */
+    public void rebuildBanFilter() {
+        banFilter.rebuild(bans.keySet(), addressBans.keySet());
+    }
+
+    private void checkBanFilter() {
+        if (banFilter.needsRebuild()) {
+            rebuildBanFilter();
+        }
+    }
+
+    /**
+     * Writes the index to disk
+     */
+    public synchronized void save() {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (FileOutputStream stream = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                Map<UUID, Sanction> activeMutes = getAll(SanctionType.MUTE);
+                Map<UUID, Sanction> activeBans = getAll(SanctionType.BAN);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(activeMutes.size() + activeBans.size());
+                write(out, activeMutes);
+                write(out, activeBans);
+
+                Map<Long, Sanction> activeAddressBans = new HashMap<>(addressBans);
+                out.writeInt(activeAddressBans.size());
+                for (Map.Entry<Long, Sanction> entry : activeAddressBans.entrySet()) {
+                    byte[] record = LogSanctionStore.encode(entry.getValue().getTarget(), entry.getValue());
+                    out.writeLong(entry.getKey());
+                    out.writeInt(record.length);
+                    out.write(record);
+                }
+                out.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save active sanction index", e);
+        }
+    }
+
+    private void write(DataOutputStream out, Map<UUID, Sanction> sanctions) throws IOException {
+        for (Map.Entry<UUID, Sanction> entry : sanctions.entrySet()) {
+            byte[] record = LogSanctionStore.encode(entry.getValue().getTarget(), entry.getValue());
+            out.writeLong(entry.getKey().getMostSignificantBits());
+            out.writeLong(entry.getKey().getLeastSignificantBits());
+            out.writeInt(record.length);
+            out.write(record);
+        }
+    }
+
+    /**
+     * Coalesces changes into a single asynchronous rewrite
+     */
+    private void scheduleSave() {
+        if (!plugin.isEnabled()) {
+            // Tasks cannot be scheduled while disabling, the final save covers this change
+            return;
+        }
+        if (saveQueued.compareAndSet(false, true)) {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                saveQueued.set(false);
+                save();
+            });
+        }
+    }
+
+    private Map<UUID, Sanction> map(SanctionType type) {
+        return type == SanctionType.BAN ? bans : mutes;
+    }
+}
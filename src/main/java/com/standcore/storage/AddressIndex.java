@@ -0,0 +1,624 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.util.LongIntMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Which accounts logged in from which addresses. A snapshot lives in data/addresses.dat
+ * and every login since it was written is appended to data/addresses.log.
+ * Each address/account pair is one row of parallel primitive arrays, chained both per
+ * address and per account, so a lookup only walks the rows it needs. Rows keep the
+ * first and last day they were seen in, and rows outside the retention window are
+ * dropped whenever the snapshot is rewritten.
+ * Accounts seen on the same address within the cluster window are joined in a
+ * disjoint-set forest as they log in. Clusters only ever merge while running and are
+ * rebuilt from the rows on load, which is when links that left the window fall away.
+ */
+public class AddressIndex {
+    private static final int MAGIC = 0x53434141;
+    private static final int VERSION = 1;
+    private static final int LOG_RECORD_SIZE = 28;
+    private static final int NONE = -1;
+
+    private final StandCore plugin;
+    private final File file;
+    private final File logFile;
+    private final int retentionDays;
+    private final int clusterDays;
+    private final ByteBuffer logBuffer;
+    private FileChannel log;
+
+    private final Map<UUID, Integer> accountIds;
+    private UUID[] accounts;
+    private int[] accountHead;
+    private int accountCount;
+
+    // Disjoint-set forest over account ids, members of a set form a circular list
+    private int[] parent;
+    private int[] clusterSize;
+    private int[] nextMember;
+    private boolean[] flagged;
+
+    private final LongIntMap addressHead;
+    private long[] rowAddress;
+    private int[] rowAccount;
+    private int[] rowFirst;
+    private int[] rowLast;
+    private int[] rowNextByAddress;
+    private int[] rowNextByAccount;
+    private int rowCount;
+
+    public AddressIndex(StandCore plugin, int retentionDays, int clusterDays) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "data/addresses.dat");
+        this.logFile = new File(plugin.getDataFolder(), "data/addresses.log");
+        this.retentionDays = retentionDays;
+        this.clusterDays = clusterDays;
+        this.logBuffer = ByteBuffer.allocate(LOG_RECORD_SIZE);
+        this.accountIds = new HashMap<>();
+        this.addressHead = new LongIntMap(1024);
+        allocateAccounts(256);
+        allocateRows(1024);
+    }
+
+    /**
+     * Loads the snapshot, replays the login log and folds both into a new snapshot
+     */
+    public synchronized void load() {
+        long start = System.currentTimeMillis();
+        int oldest = today() - retentionDays;
+        boolean dirty = false;
+
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Unknown index format");
+                }
+
+                UUID[] stored = new UUID[in.readInt()];
+                for (int i = 0; i < stored.length; i++) {
+                    stored[i] = new UUID(in.readLong(), in.readLong());
+                }
+
+                int rows = in.readInt();
+                for (int i = 0; i < rows; i++) {
+                    long address = in.readLong();
+                    UUID uuid = stored[in.readInt()];
+                    int first = in.readInt();
+                    int last = in.readInt();
+                    if (last < oldest) {
+                        dirty = true;
+                        continue;
+                    }
+                    addRow(address, account(uuid), first, last);
+                }
+            } catch (IOException | ArrayIndexOutOfBoundsException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load address index, starting from the login log", e);
+                clear();
+            }
+        }
+
+        if (logFile.exists()) {
+            try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(LOG_RECORD_SIZE * 4096);
+                while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                    buffer.flip();
+                    if (buffer.remaining() < LOG_RECORD_SIZE) {
+                        // Torn record from a crash mid-write
+                        break;
+                    }
+                    while (buffer.remaining() >= LOG_RECORD_SIZE) {
+                        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                        long address = buffer.getLong();
+                        int day = buffer.getInt();
+                        if (day >= oldest) {
+                            touch(uuid, address, day);
+                            dirty = true;
+                        }
+                    }
+                    buffer.compact();
+                }
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to replay address log", e);
+            }
+        }
+
+        if (dirty) {
+            save();
+        }
+        openLog();
+        int clusters = buildClusters();
+
+        plugin.getLogger().info("Loaded " + rowCount + " addresses for " + accountIds.size()
+            + " accounts in " + clusters + " clusters in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Records a login
+     * @param uuid The player's UUID
+     * @param address The address key, see {@link #key}
+     * @param time The login time
+     * @return true if the account had not been seen from this address before
+     */
+    public synchronized boolean record(UUID uuid, long address, long time) {
+        int day = (int) TimeUnit.MILLISECONDS.toDays(time);
+        int previous = touch(uuid, address, day);
+        if (previous != day) {
+            append(uuid, address, day);
+            link(accountIds.get(uuid), address, day);
+        }
+        return previous == NONE;
+    }
+
+    /**
+     * Gets the accounts seen from an address
+     * @param address The address key
+     * @param days How many days back to look
+     * @return The accounts, most recently seen first
+     */
+    public synchronized List<UUID> getAccounts(long address, int days) {
+        int oldest = today() - days;
+        List<int[]> matches = new ArrayList<>();
+        for (int row = addressHead.get(address, NONE); row != NONE; row = rowNextByAddress[row]) {
+            if (rowLast[row] >= oldest) {
+                matches.add(new int[] { rowAccount[row], rowLast[row] });
+            }
+        }
+        matches.sort((a, b) -> Integer.compare(b[1], a[1]));
+
+        List<UUID> result = new ArrayList<>(matches.size());
+        for (int[] match : matches) {
+            result.add(accounts[match[0]]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the accounts that share an address with a player
+     * @param uuid The player's UUID
+     * @param days How many days back to look
+     * @return The other accounts, most recently seen first
+     */
+    public synchronized List<Alt> getAlts(UUID uuid, int days) {
+        Integer account = accountIds.get(uuid);
+        if (account == null) {
+            return new ArrayList<>();
+        }
+
+        int oldest = today() - days;
+        Map<Integer, int[]> shared = new LinkedHashMap<>();
+        for (int own = accountHead[account]; own != NONE; own = rowNextByAccount[own]) {
+            if (rowLast[own] < oldest) continue;
+
+            for (int row = addressHead.get(rowAddress[own], NONE); row != NONE; row = rowNextByAddress[row]) {
+                if (rowAccount[row] == account || rowLast[row] < oldest) continue;
+
+                int[] stats = shared.get(rowAccount[row]);
+                if (stats == null) {
+                    shared.put(rowAccount[row], new int[] { 1, rowLast[row] });
+                } else {
+                    stats[0]++;
+                    stats[1] = Math.max(stats[1], rowLast[row]);
+                }
+            }
+        }
+
+        List<Alt> alts = new ArrayList<>(shared.size());
+        for (Map.Entry<Integer, int[]> entry : shared.entrySet()) {
+            alts.add(new Alt(accounts[entry.getKey()], entry.getValue()[0],
+                TimeUnit.DAYS.toMillis(entry.getValue()[1])));
+        }
+        alts.sort((a, b) -> Long.compare(b.getLastSeen(), a.getLastSeen()));
+        return alts;
+    }
+
+    /**
+     * Gets the address a player most recently logged in from
+     * @param uuid The player's UUID
+     * @return The address key or null if the player has never been seen
+     */
+    public synchronized Long getLastAddress(UUID uuid) {
+        Integer account = accountIds.get(uuid);
+        if (account == null) return null;
+
+        // Rows are chained newest first, so ties on the day go to the newest address
+        int best = NONE;
+        for (int row = accountHead[account]; row != NONE; row = rowNextByAccount[row]) {
+            if (best == NONE || rowLast[row] > rowLast[best]) {
+                best = row;
+            }
+        }
+        return best == NONE ? null : rowAddress[best];
+    }
+
+    /**
+     * Gets the number of accounts in a player's cluster
+     * @param uuid The player's UUID
+     * @return The cluster size, 1 for accounts never seen
+     */
+    public synchronized int getClusterSize(UUID uuid) {
+        Integer account = accountIds.get(uuid);
+        return account == null ? 1 : clusterSize[find(account)];
+    }
+
+    /**
+     * Gets every account in a player's cluster
+     * @param uuid The player's UUID
+     * @return The accounts, including the player's own
+     */
+    public synchronized List<UUID> getCluster(UUID uuid) {
+        Integer account = accountIds.get(uuid);
+        List<UUID> members = new ArrayList<>();
+        if (account == null) {
+            members.add(uuid);
+            return members;
+        }
+
+        int member = account;
+        do {
+            members.add(accounts[member]);
+            member = nextMember[member];
+        } while (member != account);
+        return members;
+    }
+
+    /**
+     * Flags a player's cluster, which stays flagged as it merges with others
+     * @param uuid The player's UUID
+     */
+    public synchronized void flagCluster(UUID uuid) {
+        Integer account = accountIds.get(uuid);
+        if (account != null) {
+            flagged[find(account)] = true;
+        }
+    }
+
+    /**
+     * Clears the flag on a player's cluster
+     * @param uuid The player's UUID
+     */
+    public synchronized void unflagCluster(UUID uuid) {
+        Integer account = accountIds.get(uuid);
+        if (account != null) {
+            flagged[find(account)] = false;
+        }
+    }
+
+    /**
+     * Checks whether a player's cluster is flagged
+     * @param uuid The player's UUID
+     * @return true if flagged
+     */
+    public synchronized boolean isFlagged(UUID uuid) {
+        Integer account = accountIds.get(uuid);
+        return account != null && flagged[find(account)];
+    }
+
+    /**
+     * Writes a snapshot and truncates the login log
+     */
+    public synchronized void save() {
+        int oldest = today() - retentionDays;
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (FileOutputStream stream = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(accountCount);
+                for (int i = 0; i < accountCount; i++) {
+                    out.writeLong(accounts[i].getMostSignificantBits());
+                    out.writeLong(accounts[i].getLeastSignificantBits());
+                }
+
+                int kept = 0;
+                for (int row = 0; row < rowCount; row++) {
+                    if (rowLast[row] >= oldest) kept++;
+                }
+                out.writeInt(kept);
+                for (int row = 0; row < rowCount; row++) {
+                    if (rowLast[row] < oldest) continue;
+                    out.writeLong(rowAddress[row]);
+                    out.writeInt(rowAccount[row]);
+                    out.writeInt(rowFirst[row]);
+                    out.writeInt(rowLast[row]);
+                }
+                out.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Everything in the log is now part of the snapshot
+            if (log != null) {
+                log.truncate(0);
+            } else {
+                Files.deleteIfExists(logFile.toPath());
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save address index", e);
+        }
+    }
+
+    /**
+     * Saves a final snapshot and closes the login log
+     */
+    public synchronized void close() {
+        save();
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to close address log", e);
+            }
+            log = null;
+        }
+    }
+
+    /**
+     * Gets the key an address is indexed under. IPv4 addresses keep all 32 bits, IPv6
+     * addresses are reduced to their /64 prefix since a single host usually owns one.
+     * The two never collide as the IPv6 space with 32 leading zero bits is reserved.
+     * @param address The address
+     * @return The address key
+     */
+    public static long key(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return ByteBuffer.wrap(bytes).getInt() & 0xFFFFFFFFL;
+        }
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+
+    /**
+     * Formats an address key for display
+     * @param key The address key
+     * @return The IPv4 address or the IPv6 /64 prefix
+     */
+    public static String format(long key) {
+        if ((key >>> 32) == 0) {
+            return ((key >>> 24) & 0xFF) + "." + ((key >>> 16) & 0xFF) + "." + ((key >>> 8) & 0xFF) + "." + (key & 0xFF);
+        }
+        return String.format("%x:%x:%x:%x::/64",
+            (key >>> 48) & 0xFFFF, (key >>> 32) & 0xFFFF, (key >>> 16) & 0xFFFF, key & 0xFFFF);
+    }
+
+    /**
+     * Joins an account with the others seen on an address within the cluster window
+     */
+    private void link(int account, long address, int day) {
+        int oldest = day - clusterDays;
+        for (int row = addressHead.get(address, NONE); row != NONE; row = rowNextByAddress[row]) {
+            if (rowAccount[row] != account && rowLast[row] >= oldest) {
+                union(account, rowAccount[row]);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the clusters from the rows inside the cluster window
+     * @return The number of clusters
+     */
+    private int buildClusters() {
+        for (int i = 0; i < accountCount; i++) {
+            resetCluster(i);
+        }
+
+        // Linking every row to the first account seen on its address is enough to connect them all
+        int oldest = today() - clusterDays;
+        LongIntMap first = new LongIntMap(addressHead.size());
+        for (int row = 0; row < rowCount; row++) {
+            if (rowLast[row] < oldest) continue;
+
+            int account = first.get(rowAddress[row], NONE);
+            if (account == NONE) {
+                first.put(rowAddress[row], rowAccount[row]);
+            } else {
+                union(account, rowAccount[row]);
+            }
+        }
+
+        int clusters = 0;
+        for (int i = 0; i < accountCount; i++) {
+            if (parent[i] == i) clusters++;
+        }
+        return clusters;
+    }
+
+    private int find(int account) {
+        while (parent[account] != account) {
+            // Path halving
+            parent[account] = parent[parent[account]];
+            account = parent[account];
+        }
+        return account;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) return;
+
+        if (clusterSize[rootA] < clusterSize[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        clusterSize[rootA] += clusterSize[rootB];
+        flagged[rootA] |= flagged[rootB];
+
+        // Splice the two member lists together
+        int next = nextMember[a];
+        nextMember[a] = nextMember[b];
+        nextMember[b] = next;
+    }
+
+    private void resetCluster(int account) {
+        parent[account] = account;
+        clusterSize[account] = 1;
+        nextMember[account] = account;
+        flagged[account] = false;
+    }
+
+    /**
+     * Marks an account as seen from an address on a day
+     * @return The day the pair was last seen before this call, or NONE if it is new
+     */
+    private int touch(UUID uuid, long address, int day) {
+        int account = account(uuid);
+        for (int row = accountHead[account]; row != NONE; row = rowNextByAccount[row]) {
+            if (rowAddress[row] == address) {
+                int previous = rowLast[row];
+                rowLast[row] = Math.max(previous, day);
+                return previous;
+            }
+        }
+
+        addRow(address, account, day, day);
+        return NONE;
+    }
+
+    private int account(UUID uuid) {
+        Integer id = accountIds.get(uuid);
+        if (id != null) return id;
+
+        if (accountCount == accounts.length) {
+            int capacity = accountCount * 2;
+            accounts = Arrays.copyOf(accounts, capacity);
+            accountHead = Arrays.copyOf(accountHead, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            clusterSize = Arrays.copyOf(clusterSize, capacity);
+            nextMember = Arrays.copyOf(nextMember, capacity);
+            flagged = Arrays.copyOf(flagged, capacity);
+        }
+        accounts[accountCount] = uuid;
+        accountHead[accountCount] = NONE;
+        resetCluster(accountCount);
+        accountIds.put(uuid, accountCount);
+        return accountCount++;
+    }
+
+    private void addRow(long address, int account, int first, int last) {
+        if (rowCount == rowAddress.length) {
+            int capacity = rowCount * 2;
+            rowAddress = Arrays.copyOf(rowAddress, capacity);
+            rowAccount = Arrays.copyOf(rowAccount, capacity);
+            rowFirst = Arrays.copyOf(rowFirst, capacity);
+            rowLast = Arrays.copyOf(rowLast, capacity);
+            rowNextByAddress = Arrays.copyOf(rowNextByAddress, capacity);
+            rowNextByAccount = Arrays.copyOf(rowNextByAccount, capacity);
+        }
+
+        int row = rowCount++;
+        rowAddress[row] = address;
+        rowAccount[row] = account;
+        rowFirst[row] = first;
+        rowLast[row] = last;
+        rowNextByAddress[row] = addressHead.get(address, NONE);
+        rowNextByAccount[row] = accountHead[account];
+        addressHead.put(address, row);
+        accountHead[account] = row;
+    }
+
+    private void append(UUID uuid, long address, int day) {
+        if (log == null) return;
+
+        logBuffer.clear();
+        logBuffer.putLong(uuid.getMostSignificantBits());
+        logBuffer.putLong(uuid.getLeastSignificantBits());
+        logBuffer.putLong(address);
+        logBuffer.putInt(day);
+        logBuffer.flip();
+        try {
+            while (logBuffer.hasRemaining()) {
+                log.write(logBuffer);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to append to address log", e);
+        }
+    }
+
+    private void openLog() {
+        try {
+            log = FileChannel.open(logFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to open address log, logins will not be persisted", e);
+        }
+    }
+
+    private void clear() {
+        accountIds.clear();
+        addressHead.clear();
+        accountCount = 0;
+        rowCount = 0;
+    }
+
+    private void allocateAccounts(int capacity) {
+        accounts = new UUID[capacity];
+        accountHead = new int[capacity];
+        parent = new int[capacity];
+        clusterSize = new int[capacity];
+        nextMember = new int[capacity];
+        flagged = new boolean[capacity];
+    }
+
+    private void allocateRows(int capacity) {
+        rowAddress = new long[capacity];
+        rowAccount = new int[capacity];
+        rowFirst = new int[capacity];
+        rowLast = new int[capacity];
+        rowNextByAddress = new int[capacity];
+        rowNextByAccount = new int[capacity];
+    }
+
+    private static int today() {
+        return (int) TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+    }
+
+    /**
+     * An account sharing addresses with another
+     */
+    public static class Alt {
+        private final UUID uuid;
+        private final int sharedAddresses;
+        private final long lastSeen;
+
+        public Alt(UUID uuid, int sharedAddresses, long lastSeen) {
+            this.uuid = uuid;
+            this.sharedAddresses = sharedAddresses;
+            this.lastSeen = lastSeen;
+        }
+
+        public UUID getUuid() { return uuid; }
+        public int getSharedAddresses() { return sharedAddresses; }
+        public long getLastSeen() { return lastSeen; }
+    }
+}
@@ -0,0 +1,136 @@
+package com.standcore.storage;
+
+import com.standcore.util.BloomFilter;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filter of banned UUIDs and addresses checked before the ban lookup at login.
+ * Bits cannot be removed, so unbans and expiries only count as stale entries and the
+ * filter is rebuilt once too many have piled up or it has outgrown its capacity.
+ */
+public class BanFilter {
+    private static final int MIN_CAPACITY = 1024;
+
+    private final double falsePositiveRate;
+    private volatile BloomFilter filter;
+    private final AtomicInteger stale;
+    private final AtomicLong probes;
+    private final AtomicLong negatives;
+    private final AtomicLong falsePositives;
+    private final AtomicLong rebuilds;
+
+    /**
+     * @param falsePositiveRate Target false positive rate of a freshly built filter
+     */
+    public BanFilter(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(MIN_CAPACITY, falsePositiveRate);
+        this.stale = new AtomicInteger();
+        this.probes = new AtomicLong();
+        this.negatives = new AtomicLong();
+        this.falsePositives = new AtomicLong();
+        this.rebuilds = new AtomicLong();
+    }
+
+    /**
+     * Replaces the filter with one built from the current bans. Synchronized with
+     * {@link #add(UUID)} so a ban recorded while rebuilding always ends up in the new filter.
+     * @param uuids Banned UUIDs
+     * @param addresses Banned address keys, see {@link AddressIndex#key}
+     */
+    public synchronized void rebuild(Collection<UUID> uuids, Collection<Long> addresses) {
+        int count = uuids.size() + addresses.size();
+        BloomFilter rebuilt = new BloomFilter(Math.max(MIN_CAPACITY, count * 2), falsePositiveRate);
+        for (UUID uuid : uuids) {
+            rebuilt.add(uuid);
+        }
+        for (long address : addresses) {
+            rebuilt.add(address);
+        }
+        filter = rebuilt;
+        stale.set(0);
+        rebuilds.incrementAndGet();
+    }
+
+    public synchronized void add(UUID uuid) {
+        filter.add(uuid);
+    }
+
+    public synchronized void add(long address) {
+        filter.add(address);
+    }
+
+    /**
+     * Records that a banned key left the ban table
+     */
+    public void markStale() {
+        stale.incrementAndGet();
+    }
+
+    /**
+     * @return true if stale entries or growth have pushed the filter past its sizing
+     */
+    public boolean needsRebuild() {
+        BloomFilter current = filter;
+        return current.size() > current.getCapacity()
+            || stale.get() > Math.max(16, current.size() / 4);
+    }
+
+    /**
+     * Checks whether a login may match a ban. Lock-free, safe to call from any thread.
+     * @param uuid The player's UUID
+     * @param address The player's address key
+     * @return false if the player is definitely not banned
+     */
+    public boolean mightBeBanned(UUID uuid, long address) {
+        probes.incrementAndGet();
+        BloomFilter current = filter;
+        if (current.mightContain(uuid) || current.mightContain(address)) {
+            return true;
+        }
+        negatives.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records a login the filter let through to the lookup that turned out not to be banned
+     */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    public long getProbes() {
+        return probes.get();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.get();
+    }
+
+    public long getRebuilds() {
+        return rebuilds.get();
+    }
+
+    public int size() {
+        return filter.size();
+    }
+
+    /**
+     * @return The share of logins without a ban that still needed the lookup
+     */
+    public double getFalsePositiveRate() {
+        long clean = negatives.get() + falsePositives.get();
+        return clean == 0 ? 0 : (double) falsePositives.get() / clean;
+    }
+
+    /**
+     * @return The false positive rate predicted from the filter's size
+     */
+    public double getExpectedFalsePositiveRate() {
+        return filter.getExpectedFalsePositiveRate();
+    }
+}
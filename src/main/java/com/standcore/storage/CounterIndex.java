@@ -0,0 +1,381 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.managers.SanctionsManager.SanctionType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Per-player sanction and grant counters, updated on every save so counts never
+ * need the full history. A player missing from the index is counted once from
+ * their history and kept up to date from then on. Histories are always loaded
+ * outside the map's locks, the first count to land wins.
+ * <p>
+ * The index is checkpointed to data/counters.dat every few minutes and on shutdown.
+ * Before a player's count changes, they are appended to data/counters.dirty and synced,
+ * and a checkpoint only clears the players whose records are all saved. On load the
+ * players listed there are dropped, so after a crash only they are recounted from history.
+ */
+public class CounterIndex {
+    private static final int MAGIC = 0x53434349;
+    private static final int VERSION = 1;
+
+    private final StandCore plugin;
+    private final File file;
+    private final File dirtyFile;
+    private final Map<String, SanctionCounts> sanctions;
+    private final Map<UUID, Integer> grants;
+    // Guarded by this: players in the dirty file, mapped to when they last changed
+    private final Map<String, Long> dirty;
+    private FileChannel dirtyLog;
+    private long changes;
+    private long checkpointed;
+    private boolean broken;
+
+    public CounterIndex(StandCore plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "data/counters.dat");
+        this.dirtyFile = new File(plugin.getDataFolder(), "data/counters.dirty");
+        this.sanctions = new ConcurrentHashMap<>();
+        this.grants = new ConcurrentHashMap<>();
+        this.dirty = new HashMap<>();
+    }
+
+    /**
+     * Loads the last checkpoint, leaving out the players that changed after it
+     */
+    public synchronized void load() {
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                plugin.getLogger().warning("Ignoring unreadable counter index");
+                return;
+            }
+
+            int types = in.readUnsignedByte();
+            int players = in.readInt();
+            for (int i = 0; i < players; i++) {
+                String playerName = in.readUTF();
+                int[] counts = new int[SanctionType.values().length];
+                for (int t = 0; t < types; t++) {
+                    int count = in.readInt();
+                    if (t < counts.length) counts[t] = count;
+                }
+                sanctions.put(playerName, new SanctionCounts(counts, in.readLong()));
+            }
+
+            players = in.readInt();
+            for (int i = 0; i < players; i++) {
+                grants.put(new UUID(in.readLong(), in.readLong()), in.readInt());
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to load counter index, it will be rebuilt", e);
+            sanctions.clear();
+            grants.clear();
+            return;
+        }
+
+        // Players that changed after the checkpoint may have records it does not count
+        if (!dirtyFile.exists()) return;
+        try {
+            for (String key : Files.readAllLines(dirtyFile.toPath(), StandardCharsets.UTF_8)) {
+                if (key.startsWith("S:")) {
+                    sanctions.remove(key.substring(2));
+                } else if (key.startsWith("G:")) {
+                    // A torn last line never had its record saved, it was synced before counting
+                    try {
+                        grants.remove(UUID.fromString(key.substring(2)));
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                } else {
+                    continue;
+                }
+                dirty.put(key, 0L);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to read changed counters, the index will be rebuilt", e);
+            sanctions.clear();
+            grants.clear();
+        }
+    }
+
+    /**
+     * Copies the counters for a checkpoint. Call on the thread that saves records, so every
+     * counted record has been handed to the store.
+     * @param pendingPlayers Players with sanctions not saved yet
+     * @param pendingGrants Players with grants not saved yet
+     * @return The checkpoint to write with {@link #save(Checkpoint)}
+     */
+    public synchronized Checkpoint prepareCheckpoint(Collection<String> pendingPlayers, Collection<UUID> pendingGrants) {
+        List<String> pending = new ArrayList<>();
+        for (String playerName : pendingPlayers) pending.add("S:" + playerName);
+        for (UUID uuid : pendingGrants) pending.add("G:" + uuid);
+        return new Checkpoint(new HashMap<>(sanctions), new HashMap<>(grants), pending, changes);
+    }
+
+    /**
+     * Writes a checkpoint, then clears the players it fully counts from the dirty file.
+     * Safe to call from any thread.
+     * @param checkpoint The checkpoint
+     */
+    public synchronized void save(Checkpoint checkpoint) {
+        if (broken || checkpoint.changes < checkpointed) return;
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (FileOutputStream stream = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeByte(SanctionType.values().length);
+
+                out.writeInt(checkpoint.sanctions.size());
+                for (Map.Entry<String, SanctionCounts> entry : checkpoint.sanctions.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    for (int count : entry.getValue().counts) {
+                        out.writeInt(count);
+                    }
+                    out.writeLong(entry.getValue().lastSanction);
+                }
+
+                out.writeInt(checkpoint.grants.size());
+                for (Map.Entry<UUID, Integer> entry : checkpoint.grants.entrySet()) {
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    out.writeInt(entry.getValue());
+                }
+
+                out.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save counter index", e);
+            return;
+        }
+
+        // Keep the players that changed since the copy was taken or still have records to save
+        dirty.values().removeIf(changed -> changed <= checkpoint.changes);
+        for (String key : checkpoint.pending) {
+            dirty.putIfAbsent(key, checkpoint.changes);
+        }
+        File dirtyTemp = new File(dirtyFile.getParentFile(), dirtyFile.getName() + ".tmp");
+        try (FileChannel out = FileChannel.open(dirtyTemp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder keys = new StringBuilder();
+            for (String key : dirty.keySet()) keys.append(key).append('\n');
+            ByteBuffer buffer = ByteBuffer.wrap(keys.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) out.write(buffer);
+            out.force(false);
+        } catch (IOException e) {
+            // The old dirty file is still in place and lists a superset of these players
+            plugin.getLogger().log(Level.WARNING, "Failed to rewrite changed counters", e);
+            return;
+        }
+        try {
+            if (dirtyLog != null) {
+                dirtyLog.close();
+                dirtyLog = null;
+            }
+            Files.move(dirtyTemp.toPath(), dirtyFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointed = checkpoint.changes;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to replace changed counters", e);
+        }
+    }
+
+    /**
+     * Closes the dirty file
+     */
+    public synchronized void close() {
+        if (dirtyLog == null) return;
+        try {
+            dirtyLog.close();
+        } catch (IOException ignored) {
+        }
+        dirtyLog = null;
+    }
+
+    /**
+     * Records that a player's counts are about to change, synced before the change is made
+     * @param key S: and the player name for sanctions, G: and the UUID for grants
+     */
+    private synchronized void markChanged(String key) {
+        if (broken) return;
+
+        changes++;
+        if (dirty.put(key, changes) != null) return;
+        try {
+            if (dirtyLog == null) {
+                Files.createDirectories(dirtyFile.getParentFile().toPath());
+                dirtyLog = FileChannel.open(dirtyFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer line = ByteBuffer.wrap((key + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) dirtyLog.write(line);
+            dirtyLog.force(false);
+        } catch (IOException e) {
+            // Without the mark a checkpoint could be loaded with stale counts, drop it instead
+            plugin.getLogger().log(Level.SEVERE, "Failed to record a counter change, "
+                + "the counter index will be rebuilt on the next start", e);
+            broken = true;
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Counts a sanction that is about to be saved. Must be called before the
+     * sanction reaches the store, so a first lookup never counts it twice.
+     * @param playerName The player name
+     * @param sanction The sanction
+     * @param history Loads the player's history if they are not indexed yet
+     */
+    public void addSanction(String playerName, Sanction sanction, Function<String, List<Sanction>> history) {
+        markChanged("S:" + playerName);
+        // Count the history outside the map's lock, a racing lookup may win but counts the same history
+        if (!sanctions.containsKey(playerName)) {
+            sanctions.putIfAbsent(playerName, SanctionCounts.of(history.apply(playerName)));
+        }
+        sanctions.computeIfPresent(playerName, (k, counts) -> counts.plus(sanction));
+    }
+
+    /**
+     * Counts a grant that is about to be saved
+     * @param uuid The player's UUID
+     * @param grant The grant
+     * @param history Loads the player's history if they are not indexed yet
+     */
+    public void addGrant(UUID uuid, Grant grant, Function<UUID, List<Grant>> history) {
+        markChanged("G:" + uuid);
+        if (!grants.containsKey(uuid)) {
+            grants.putIfAbsent(uuid, history.apply(uuid).size());
+        }
+        grants.computeIfPresent(uuid, (k, count) -> count + 1);
+    }
+
+    /**
+     * Gets a player's sanction counts
+     * @param playerName The player name
+     * @param history Loads the player's history if they are not indexed yet
+     * @return The counts
+     */
+    public SanctionCounts getSanctionCounts(String playerName, Function<String, List<Sanction>> history) {
+        SanctionCounts counts = sanctions.get(playerName);
+        if (counts != null) return counts;
+
+        SanctionCounts loaded = SanctionCounts.of(history.apply(playerName));
+        counts = sanctions.putIfAbsent(playerName, loaded);
+        return counts != null ? counts : loaded;
+    }
+
+    /**
+     * Gets how many grants a player has received
+     * @param uuid The player's UUID
+     * @param history Loads the player's history if they are not indexed yet
+     * @return The grant count
+     */
+    public int getGrantCount(UUID uuid, Function<UUID, List<Grant>> history) {
+        Integer count = grants.get(uuid);
+        if (count != null) return count;
+
+        int loaded = history.apply(uuid).size();
+        count = grants.putIfAbsent(uuid, loaded);
+        return count != null ? count : loaded;
+    }
+
+    /**
+     * A copy of the counters waiting to be written
+     */
+    public static final class Checkpoint {
+        private final Map<String, SanctionCounts> sanctions;
+        private final Map<UUID, Integer> grants;
+        private final List<String> pending;
+        private final long changes;
+
+        private Checkpoint(Map<String, SanctionCounts> sanctions, Map<UUID, Integer> grants,
+                           List<String> pending, long changes) {
+            this.sanctions = sanctions;
+            this.grants = grants;
+            this.pending = pending;
+            this.changes = changes;
+        }
+    }
+
+    /**
+     * Immutable sanction counts for one player
+     */
+    public static class SanctionCounts {
+        private final int[] counts;
+        private final long lastSanction;
+
+        private SanctionCounts(int[] counts, long lastSanction) {
+            this.counts = counts;
+            this.lastSanction = lastSanction;
+        }
+
+        private static SanctionCounts of(List<Sanction> history) {
+            int[] counts = new int[SanctionType.values().length];
+            long lastSanction = 0;
+            for (Sanction sanction : history) {
+                counts[sanction.getType().ordinal()]++;
+                lastSanction = Math.max(lastSanction, sanction.getTimestamp());
+            }
+            return new SanctionCounts(counts, lastSanction);
+        }
+
+        private SanctionCounts plus(Sanction sanction) {
+            int[] updated = Arrays.copyOf(counts, counts.length);
+            updated[sanction.getType().ordinal()]++;
+            return new SanctionCounts(updated, Math.max(lastSanction, sanction.getTimestamp()));
+        }
+
+        public int getCount(SanctionType type) {
+            return counts[type.ordinal()];
+        }
+
+        public int getTotal() {
+            int total = 0;
+            for (int count : counts) total += count;
+            return total;
+        }
+
+        /**
+         * @return When the player was last sanctioned, or 0 if never
+         */
+        public long getLastSanction() {
+            return lastSanction;
+        }
+    }
+}
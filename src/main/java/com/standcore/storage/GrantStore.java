@@ -0,0 +1,45 @@
+package com.standcore.storage;
+
+import com.standcore.managers.GrantsManager.Grant;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+public interface GrantStore {
+
+    /**
+     * Saves a grant to a player's history
+     * @param uuid The player's UUID
+     * @param grant The grant
+     * @throws IOException if the grant could not be saved
+     */
+    void saveGrant(UUID uuid, Grant grant) throws IOException;
+
+    /**
+     * Saves several grants for the same player without making them durable yet.
+     * Callers must call {@link #flush()} to commit the batch.
+     * @param uuid The player's UUID
+     * @param grants The grants
+     * @throws IOException if the grants could not be written
+     */
+    void saveGrants(UUID uuid, List<Grant> grants) throws IOException;
+
+    /**
+     * Makes every batched write durable
+     * @throws IOException if the writes could not be committed
+     */
+    void flush() throws IOException;
+
+    /**
+     * Gets a player's grant history
+     * @param uuid The player's UUID
+     * @return List of grants (newest first)
+     */
+    List<Grant> getGrantHistory(UUID uuid);
+
+    /**
+     * Releases any resources held by this store
+     */
+    void close();
+}
@@ -0,0 +1,432 @@
+package com.standcore.storage;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
+import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.util.ConfigUtils;
+import com.standcore.util.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Copies the legacy per-player YAML files under data/sanctions and data/grants into
+ * the SQLITE or LOG backend.
+ * <p>
+ * Files are parsed in parallel on a fork-join pool and handed to a single writer that
+ * saves them in large batches with one commit per batch. After each commit the batch's
+ * files are appended to a checkpoint with their record count and checksum, so an
+ * interrupted migration resumes where it stopped. Once everything is written, every
+ * migrated player is read back from the target and compared against the checkpoint.
+ */
+public class LegacyMigration implements Runnable {
+    private static final int SPLIT_THRESHOLD = 32;
+    private static final long REPORT_INTERVAL = 5000;
+
+    private final StandCore plugin;
+    private final StorageType target;
+    private final CommandSender sender;
+    private final int parallelism;
+    private final int batchSize;
+    private final File checkpointFile;
+    private final AtomicInteger failures;
+
+    public LegacyMigration(StandCore plugin, StorageType target, CommandSender sender) {
+        this.plugin = plugin;
+        this.target = target;
+        this.sender = sender;
+        int configured = ConfigUtils.getInt("config", "database.migration.parallelism", 0);
+        this.parallelism = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+        this.batchSize = Math.max(100, ConfigUtils.getInt("config", "database.migration.batch-size", 5000));
+        this.checkpointFile = new File(plugin.getDataFolder(),
+            "data/migration-" + target.name().toLowerCase() + ".checkpoint");
+        this.failures = new AtomicInteger();
+    }
+
+    @Override
+    public void run() {
+        SanctionStore sanctionStore = null;
+        GrantStore grantStore = null;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            // Open the target
+            if (target == StorageType.SQLITE) {
+                SqlDatabase database = new SqlDatabase(plugin, "data/standcore.db");
+                database.open();
+                sanctionStore = new SqlSanctionStore(plugin, database);
+                grantStore = new SqlGrantStore(plugin, database);
+            } else {
+                long segmentSize = Math.max(1, ConfigUtils.getInt("config", "database.log.segment-size-mb", 16)) * 1024L * 1024L;
+                LogSanctionStore sanctionLog = new LogSanctionStore(plugin, segmentSize);
+                LogGrantStore grantLog = new LogGrantStore(plugin, segmentSize);
+                sanctionStore = sanctionLog;
+                grantStore = grantLog;
+                sanctionLog.open();
+                grantLog.open();
+            }
+
+            // Skip every file a previous run already committed
+            Map<String, Checkpoint> done = readCheckpoint();
+            List<Source> sources = new ArrayList<>();
+            collect(sources, new File(plugin.getDataFolder(), "data/sanctions"), false, done);
+            collect(sources, new File(plugin.getDataFolder(), "data/grants"), true, done);
+
+            report("standcore.migrate.started",
+                "files", String.valueOf(sources.size()),
+                "skipped", String.valueOf(done.size()),
+                "target", target.name(),
+                "threads", String.valueOf(parallelism));
+
+            long start = System.currentTimeMillis();
+            long records = write(pool, sources, sanctionStore, grantStore, done);
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+
+            report("standcore.migrate.finished",
+                "files", String.valueOf(sources.size() - failures.get()),
+                "records", String.valueOf(records),
+                "seconds", String.format("%.1f", elapsed / 1000.0),
+                "rate", String.valueOf(records * 1000 / elapsed),
+                "failed", String.valueOf(failures.get()));
+
+            verify(done, sanctionStore, grantStore);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Migration to " + target.name() + " failed", e);
+            report("standcore.migrate.failed", "error", String.valueOf(e.getMessage()));
+        } finally {
+            pool.shutdownNow();
+            if (sanctionStore != null) sanctionStore.close();
+            if (grantStore != null) grantStore.close();
+        }
+    }
+
+    /**
+     * Parses every source on the pool and writes the results in batches
+     * @return The number of records written
+     */
+    private long write(ForkJoinPool pool, List<Source> sources, SanctionStore sanctionStore,
+                       GrantStore grantStore, Map<String, Checkpoint> done)
+            throws IOException, InterruptedException, ExecutionException {
+        BlockingQueue<Parsed> queue = new ArrayBlockingQueue<>(Math.max(64, parallelism * 16));
+        ForkJoinTask<Void> parser = pool.submit(new ParseTask(sources, 0, sources.size(), queue));
+
+        List<Parsed> batch = new ArrayList<>();
+        int batchRecords = 0;
+        long records = 0;
+        int files = 0;
+        long start = System.currentTimeMillis();
+        long lastReport = start;
+
+        try (Writer checkpoint = new OutputStreamWriter(
+                new FileOutputStream(checkpointFile, true), StandardCharsets.UTF_8)) {
+            while (true) {
+                Parsed parsed = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (parsed == null) {
+                    if (parser.isDone() && queue.isEmpty()) break;
+                    continue;
+                }
+
+                batch.add(parsed);
+                batchRecords += parsed.count();
+                if (batchRecords >= batchSize) {
+                    commit(batch, sanctionStore, grantStore, checkpoint, done);
+                    records += batchRecords;
+                    files += batch.size();
+                    batch.clear();
+                    batchRecords = 0;
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= REPORT_INTERVAL) {
+                    lastReport = now;
+                    report("standcore.migrate.progress",
+                        "done", String.valueOf(files),
+                        "files", String.valueOf(sources.size()),
+                        "records", String.valueOf(records),
+                        "rate", String.valueOf(records * 1000 / Math.max(1, now - start)));
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                commit(batch, sanctionStore, grantStore, checkpoint, done);
+                records += batchRecords;
+            }
+        }
+
+        // Surface any exception thrown while parsing
+        parser.get();
+        return records;
+    }
+
+    /**
+     * Writes a batch, commits it once and checkpoints its files
+     */
+    private void commit(List<Parsed> batch, SanctionStore sanctionStore, GrantStore grantStore,
+                        Writer checkpoint, Map<String, Checkpoint> done) throws IOException {
+        boolean sanctions = false;
+        boolean grants = false;
+        for (Parsed parsed : batch) {
+            if (parsed.sanctions != null) {
+                sanctionStore.saveSanctions(parsed.source.key, parsed.sanctions);
+                sanctions = true;
+            } else {
+                grantStore.saveGrants(UUID.fromString(parsed.source.key), parsed.grants);
+                grants = true;
+            }
+        }
+        if (sanctions) sanctionStore.flush();
+        if (grants) grantStore.flush();
+
+        // Only checkpoint once the batch is durable in the target
+        for (Parsed parsed : batch) {
+            Checkpoint entry = new Checkpoint(parsed.source.grants, parsed.source.key, parsed.count(), parsed.checksum);
+            checkpoint.write(entry.toLine());
+            checkpoint.write('\n');
+            done.put(entry.id(), entry);
+        }
+        checkpoint.flush();
+    }
+
+    /**
+     * Reads every migrated player back from the target and compares it with the checkpoint
+     */
+    private void verify(Map<String, Checkpoint> done, SanctionStore sanctionStore, GrantStore grantStore) {
+        int mismatches = 0;
+        long records = 0;
+
+        for (Checkpoint entry : done.values()) {
+            Set<UUID> ids = new HashSet<>();
+            long checksum = 0;
+
+            // The LOG target can hold a record twice after an interrupted batch, count each id once
+            if (entry.grants) {
+                UUID uuid = UUID.fromString(entry.key);
+                for (Grant grant : grantStore.getGrantHistory(uuid)) {
+                    if (ids.add(grant.getId())) checksum += checksum(LogGrantStore.encode(uuid, grant));
+                }
+            } else {
+                for (Sanction sanction : sanctionStore.getSanctionHistory(entry.key)) {
+                    if (ids.add(sanction.getId())) checksum += checksum(LogSanctionStore.encode(entry.key, sanction));
+                }
+            }
+
+            records += ids.size();
+            if (ids.size() != entry.count || checksum != entry.checksum) {
+                if (mismatches++ < 5) {
+                    report("standcore.migrate.mismatch",
+                        "player", entry.key,
+                        "expected", String.valueOf(entry.count),
+                        "actual", String.valueOf(ids.size()));
+                }
+            }
+        }
+
+        report(mismatches == 0 ? "standcore.migrate.verified" : "standcore.migrate.verify-failed",
+            "players", String.valueOf(done.size()),
+            "records", String.valueOf(records),
+            "mismatches", String.valueOf(mismatches));
+    }
+
+    private void collect(List<Source> sources, File directory, boolean grants, Map<String, Checkpoint> done) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".yml"));
+        if (files == null) return;
+
+        for (File file : files) {
+            String key = file.getName().substring(0, file.getName().length() - 4);
+            if (!done.containsKey((grants ? "g:" : "s:") + key)) {
+                sources.add(new Source(file, key, grants));
+            }
+        }
+    }
+
+    private Map<String, Checkpoint> readCheckpoint() throws IOException {
+        Map<String, Checkpoint> done = new LinkedHashMap<>();
+        if (!checkpointFile.exists()) return done;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(checkpointFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Checkpoint entry = Checkpoint.fromLine(line);
+                // A torn last line just means that file is migrated again
+                if (entry != null) done.put(entry.id(), entry);
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Sends a message to whoever started the migration from the main thread
+     */
+    private void report(String path, String... replacements) {
+        String message = ConfigUtils.getMessage(path, replacements);
+        plugin.getLogger().info(ChatColor.stripColor(message));
+        if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(message));
+        }
+    }
+
+    private static long checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Splits the sources in halves until they are small enough to parse directly
+     */
+    private class ParseTask extends RecursiveAction {
+        private final List<Source> sources;
+        private final int from;
+        private final int to;
+        private final BlockingQueue<Parsed> queue;
+
+        private ParseTask(List<Source> sources, int from, int to, BlockingQueue<Parsed> queue) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.queue = queue;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(sources, from, middle, queue), new ParseTask(sources, middle, to, queue));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                Parsed parsed = parse(sources.get(i));
+                if (parsed == null) continue;
+                try {
+                    queue.put(parsed);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private Parsed parse(Source source) {
+            try {
+                // Strict load, a file that cannot be parsed must not be checkpointed as empty
+                YamlConfiguration config = FileUtils.loadYaml(source.file);
+                long checksum = 0;
+
+                if (source.grants) {
+                    UUID uuid = UUID.fromString(source.key);
+                    List<Grant> grants = YamlGrantStore.readGrants(config);
+                    for (Grant grant : grants) checksum += checksum(LogGrantStore.encode(uuid, grant));
+                    return new Parsed(source, null, grants, checksum);
+                }
+
+                List<Sanction> sanctions = YamlSanctionStore.readSanctions(config);
+                for (Sanction sanction : sanctions) checksum += checksum(LogSanctionStore.encode(source.key, sanction));
+                return new Parsed(source, sanctions, null, checksum);
+            } catch (IOException | RuntimeException e) {
+                // Not checkpointed, a later run tries this file again
+                failures.incrementAndGet();
+                plugin.getLogger().log(Level.WARNING, "Skipping unreadable file " + source.file.getName(), e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A legacy file waiting to be migrated
+     */
+    private static class Source {
+        private final File file;
+        private final String key;
+        private final boolean grants;
+
+        private Source(File file, String key, boolean grants) {
+            this.file = file;
+            this.key = key;
+            this.grants = grants;
+        }
+    }
+
+    /**
+     * The records parsed from one file
+     */
+    private static class Parsed {
+        private final Source source;
+        private final List<Sanction> sanctions;
+        private final List<Grant> grants;
+        private final long checksum;
+
+        private Parsed(Source source, List<Sanction> sanctions, List<Grant> grants, long checksum) {
+            this.source = source;
+            this.sanctions = sanctions;
+            this.grants = grants;
+            this.checksum = checksum;
+        }
+
+        private int count() {
+            return sanctions != null ? sanctions.size() : grants.size();
+        }
+    }
+
+    /**
+     * A committed file with what it held, one line in the checkpoint file
+     */
+    private static class Checkpoint {
+        private final boolean grants;
+        private final String key;
+        private final int count;
+        private final long checksum;
+
+        private Checkpoint(boolean grants, String key, int count, long checksum) {
+            this.grants = grants;
+            this.key = key;
+            this.count = count;
+            this.checksum = checksum;
+        }
+
+        private String id() {
+            return (grants ? "g:" : "s:") + key;
+        }
+
+        private String toLine() {
+            return (grants ? "g" : "s") + "\t" + key + "\t" + count + "\t" + checksum;
+        }
+
+        private static Checkpoint fromLine(String line) {
+            String[] parts = line.split("\t");
+            if (parts.length != 4) return null;
+            try {
+                return new Checkpoint(parts[0].equals("g"), parts[1],
+                    Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+
+import static com.standcore.storage.LogSanctionStore.bytes;
+import static com.standcore.storage.LogSanctionStore.string;
+
+/**
+ * Grant storage backed by a segmented append-only binary log under data/grants-log.
+ * History reads decode records straight out of the mapped segments.
+ */
+public class LogGrantStore implements GrantStore {
+    private static final byte FORMAT = 1;
+    // format, three UUIDs, two longs and two string length prefixes
+    private static final int FIXED_SIZE = 1 + 48 + 16 + 4;
+
+    private final StandCore plugin;
+    private final SegmentLog log;
+    private final ReadWriteLock lock;
+    private final PositionIndex<UUID> index;
+
+    public LogGrantStore(StandCore plugin, long segmentSize) {
+        this.plugin = plugin;
+        this.log = new SegmentLog(new File(plugin.getDataFolder(), "data/grants-log"),
+            segmentSize, plugin.getLogger());
+        this.lock = new ReentrantReadWriteLock();
+        this.index = new PositionIndex<>();
+    }
+
+    /**
+     * Replays the snapshot and every segment written since
+     * @throws IOException if the log could not be opened
+     */
+    public void open() throws IOException {
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            log.open((position, payload) -> index.add(playerOf(payload), position));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        plugin.getLogger().info("Loaded grant log for " + index.size() + " players in "
+            + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    @Override
+    public void saveGrant(UUID uuid, Grant grant) throws IOException {
+        saveGrants(uuid, Collections.singletonList(grant));
+        flush();
+    }
+
+    @Override
+    public void saveGrants(UUID uuid, List<Grant> grants) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Grant grant : grants) {
+                index.add(uuid, log.append(encode(uuid, grant)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        log.sync();
+    }
+
+    @Override
+    public List<Grant> getGrantHistory(UUID uuid) {
+        List<Grant> grants = new ArrayList<>();
+        // A retried batch can append a record twice until the next compaction
+        Set<UUID> seen = new HashSet<>();
+
+        lock.readLock().lock();
+        try {
+            for (long position : index.get(uuid)) {
+                ByteBuffer payload = log.read(position);
+                if (payload == null) continue;
+
+                Grant grant = decode(payload);
+                if (seen.add(grant.getId())) {
+                    grants.add(grant);
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load grant history for " + uuid, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Sort by date (newest first)
+        grants.sort((g1, g2) -> Long.compare(g2.getGranted(), g1.getGranted()));
+        return grants;
+    }
+
+    /**
+     * Folds every sealed segment into a new snapshot, dropping duplicate records
+     * @param minSegments Sealed segments needed before anything is folded
+     */
+    public void compact(int minSegments) {
+        long start = System.currentTimeMillis();
+        Set<UUID> seen = new HashSet<>();
+        PositionIndex<UUID> folded = new PositionIndex<>();
+
+        try {
+            SegmentLog.Snapshot snapshot = log.prepareSnapshot(minSegments,
+                payload -> seen.add(idOf(payload)),
+                (position, payload) -> folded.add(playerOf(payload), position)
+            );
+            if (snapshot == null) return;
+
+            lock.writeLock().lock();
+            try {
+                log.install(snapshot);
+                index.fold(folded, snapshot);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            plugin.getLogger().info("Compacted grant log (" + seen.size() + " records) in "
+                + (System.currentTimeMillis() - start) + "ms");
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to compact grant log", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Encodes a grant as
+     * {@code [format][player uuid][id][granter uuid][granted][expiration][rank][granter]}
+     * where UUIDs are two longs and strings are a short length followed by UTF-8 bytes
+     */
+    static byte[] encode(UUID uuid, Grant grant) {
+        byte[] rank = bytes(grant.getRank());
+        byte[] granter = bytes(grant.getGranter());
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + rank.length + granter.length);
+        buffer.put(FORMAT);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        buffer.putLong(grant.getId().getMostSignificantBits());
+        buffer.putLong(grant.getId().getLeastSignificantBits());
+        buffer.putLong(grant.getGranterUUID().getMostSignificantBits());
+        buffer.putLong(grant.getGranterUUID().getLeastSignificantBits());
+        buffer.putLong(grant.getGranted());
+        buffer.putLong(grant.getExpiration());
+        buffer.putShort((short) rank.length).put(rank);
+        buffer.putShort((short) granter.length).put(granter);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a record written by {@link #encode(UUID, Grant)}
+     */
+    static Grant decode(ByteBuffer buffer) {
+        buffer.position(buffer.position() + 17); // format, player uuid
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        UUID granterUUID = new UUID(buffer.getLong(), buffer.getLong());
+        long granted = buffer.getLong();
+        long expiration = buffer.getLong();
+        String rank = string(buffer);
+        String granter = string(buffer);
+
+        return new Grant(id, rank, granter, granterUUID, granted, expiration);
+    }
+
+    /**
+     * Reads the player a record was filed under without decoding the rest
+     */
+    private static UUID playerOf(ByteBuffer payload) {
+        int start = payload.position();
+        return new UUID(payload.getLong(start + 1), payload.getLong(start + 9));
+    }
+
+    private static UUID idOf(ByteBuffer payload) {
+        int start = payload.position();
+        return new UUID(payload.getLong(start + 17), payload.getLong(start + 25));
+    }
+}
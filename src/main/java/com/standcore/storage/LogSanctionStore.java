@@ -0,0 +1,268 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.managers.SanctionsManager.SanctionType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+
+/**
+ * Sanction storage backed by a segmented append-only binary log under data/sanctions-log.
+ * An in-memory index maps each player to the positions of their records, and active
+ * mutes and bans are kept in memory so startup never has to scan every player.
+ */
+public class LogSanctionStore implements SanctionStore {
+    private static final byte FORMAT = 1;
+    // format, type, two UUIDs, two longs and four string length prefixes
+    private static final int FIXED_SIZE = 1 + 1 + 32 + 16 + 8;
+
+    private final StandCore plugin;
+    private final SegmentLog log;
+    private final ReadWriteLock lock;
+    private final PositionIndex<String> index;
+    private final Map<UUID, Sanction> active;
+
+    public LogSanctionStore(StandCore plugin, long segmentSize) {
+        this.plugin = plugin;
+        this.log = new SegmentLog(new File(plugin.getDataFolder(), "data/sanctions-log"),
+            segmentSize, plugin.getLogger());
+        this.lock = new ReentrantReadWriteLock();
+        this.index = new PositionIndex<>();
+        this.active = new HashMap<>();
+    }
+
+    /**
+     * Replays the snapshot and every segment written since
+     * @throws IOException if the log could not be opened
+     */
+    public void open() throws IOException {
+        long start = System.currentTimeMillis();
+        long now = start;
+
+        lock.writeLock().lock();
+        try {
+            log.open((position, payload) -> {
+                Record record = decode(payload);
+                index.add(record.playerName, position);
+                track(record.sanction, now);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        plugin.getLogger().info("Loaded sanction log for " + index.size() + " players in "
+            + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    @Override
+    public void saveSanction(String playerName, Sanction sanction) throws IOException {
+        saveSanctions(playerName, Collections.singletonList(sanction));
+        flush();
+    }
+
+    @Override
+    public void saveSanctions(String playerName, List<Sanction> sanctions) throws IOException {
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (Sanction sanction : sanctions) {
+                long position = log.append(encode(playerName, sanction));
+                index.add(playerName, position);
+                track(sanction, now);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        log.sync();
+    }
+
+    @Override
+    public List<Sanction> getSanctionHistory(String playerName) {
+        List<Sanction> sanctions = new ArrayList<>();
+        // A retried batch can append a record twice until the next compaction
+        Set<UUID> seen = new HashSet<>();
+
+        lock.readLock().lock();
+        try {
+            for (long position : index.get(playerName)) {
+                ByteBuffer payload = log.read(position);
+                if (payload == null) continue;
+
+                Sanction sanction = decode(payload).sanction;
+                if (seen.add(sanction.getId())) {
+                    sanctions.add(sanction);
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load sanction history for " + playerName, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Sort by date (newest first)
+        sanctions.sort((s1, s2) -> Long.compare(s2.getTimestamp(), s1.getTimestamp()));
+        return sanctions;
+    }
+
+    @Override
+    public List<Sanction> getActiveSanctions(SanctionType type, long now) {
+        List<Sanction> sanctions = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (Sanction sanction : active.values()) {
+                if (sanction.getType() == type
+                    && (sanction.getExpiration() == -1 || sanction.getExpiration() > now)) {
+                    sanctions.add(sanction);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sanctions;
+    }
+
+    /**
+     * Folds every sealed segment into a new snapshot, dropping duplicate records
+     * @param minSegments Sealed segments needed before anything is folded
+     */
+    public void compact(int minSegments) {
+        long start = System.currentTimeMillis();
+        Set<UUID> seen = new HashSet<>();
+        PositionIndex<String> folded = new PositionIndex<>();
+
+        try {
+            SegmentLog.Snapshot snapshot = log.prepareSnapshot(minSegments,
+                payload -> seen.add(decode(payload).sanction.getId()),
+                (position, payload) -> folded.add(decode(payload).playerName, position)
+            );
+            if (snapshot == null) return;
+
+            lock.writeLock().lock();
+            try {
+                log.install(snapshot);
+                index.fold(folded, snapshot);
+                active.values().removeIf(Sanction::isExpired);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            plugin.getLogger().info("Compacted sanction log (" + seen.size() + " records) in "
+                + (System.currentTimeMillis() - start) + "ms");
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to compact sanction log", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remembers active mutes and bans
+     */
+    private void track(Sanction sanction, long now) {
+        if (sanction.getType() != SanctionType.MUTE && sanction.getType() != SanctionType.BAN) return;
+        if (sanction.getExpiration() != -1 && sanction.getExpiration() <= now) return;
+        active.put(sanction.getId(), sanction);
+    }
+
+    /**
+     * Encodes a sanction as
+     * {@code [format][type][id][staff uuid][timestamp][expiration][player][target][staff][reason]}
+     * where UUIDs are two longs and strings are a short length followed by UTF-8 bytes
+     */
+    static byte[] encode(String playerName, Sanction sanction) {
+        byte[] player = bytes(playerName);
+        byte[] target = bytes(sanction.getTarget());
+        byte[] staff = bytes(sanction.getStaff());
+        byte[] reason = bytes(sanction.getReason());
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE
+            + player.length + target.length + staff.length + reason.length);
+        buffer.put(FORMAT);
+        buffer.put((byte) sanction.getType().ordinal());
+        buffer.putLong(sanction.getId().getMostSignificantBits());
+        buffer.putLong(sanction.getId().getLeastSignificantBits());
+        buffer.putLong(sanction.getStaffUUID().getMostSignificantBits());
+        buffer.putLong(sanction.getStaffUUID().getLeastSignificantBits());
+        buffer.putLong(sanction.getTimestamp());
+        buffer.putLong(sanction.getExpiration());
+        buffer.putShort((short) player.length).put(player);
+        buffer.putShort((short) target.length).put(target);
+        buffer.putShort((short) staff.length).put(staff);
+        buffer.putShort((short) reason.length).put(reason);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a record written by {@link #encode(String, Sanction)}
+     */
+    static Record decode(ByteBuffer buffer) {
+        buffer.get(); // format
+        SanctionType type = SanctionType.values()[buffer.get()];
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        UUID staffUUID = new UUID(buffer.getLong(), buffer.getLong());
+        long timestamp = buffer.getLong();
+        long expiration = buffer.getLong();
+        String playerName = string(buffer);
+        String target = string(buffer);
+        String staff = string(buffer);
+        String reason = string(buffer);
+
+        return new Record(playerName, new Sanction(id, type, target, staff, staffUUID, reason, timestamp, expiration));
+    }
+
+    /**
+     * Encodes a string as UTF-8, capped at what a short length prefix can hold
+     */
+    static byte[] bytes(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        return bytes.length > Short.MAX_VALUE ? Arrays.copyOf(bytes, Short.MAX_VALUE) : bytes;
+    }
+
+    static String string(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A decoded sanction with the player it was filed under
+     */
+    static class Record {
+        final String playerName;
+        final Sanction sanction;
+
+        Record(String playerName, Sanction sanction) {
+            this.playerName = playerName;
+            this.sanction = sanction;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.standcore.storage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps each player to the {@link SegmentLog} positions of their records.
+ * Positions are kept in a growable {@code long[]} per player, stored as
+ * {@code [count, positions...]} so no boxing is needed.
+ * @param <K> The player key
+ */
+class PositionIndex<K> {
+    private final Map<K, long[]> positions;
+
+    PositionIndex() {
+        this.positions = new HashMap<>();
+    }
+
+    /**
+     * Appends a position to a player's list
+     * @param key The player
+     * @param position The record's position
+     */
+    void add(K key, long position) {
+        long[] list = positions.get(key);
+        if (list == null) {
+            list = new long[4];
+        } else if (list[0] + 1 >= list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+        }
+        list[(int) ++list[0]] = position;
+        positions.put(key, list);
+    }
+
+    /**
+     * Gets a player's positions in the order they were added
+     * @param key The player
+     * @return The positions, empty if the player has no records
+     */
+    long[] get(K key) {
+        long[] list = positions.get(key);
+        return list == null ? new long[0] : Arrays.copyOfRange(list, 1, (int) list[0] + 1);
+    }
+
+    /**
+     * Replaces every position folded into a snapshot with the snapshot's positions
+     * @param folded Index of the records in the new snapshot
+     * @param snapshot The installed snapshot
+     */
+    void fold(PositionIndex<K> folded, SegmentLog.Snapshot snapshot) {
+        // Keep positions in segments written after the snapshot, replace the rest
+        for (Map.Entry<K, long[]> entry : positions.entrySet()) {
+            long[] list = entry.getValue();
+            for (int i = 1; i <= list[0]; i++) {
+                if (!SegmentLog.isFolded(list[i], snapshot)) {
+                    folded.add(entry.getKey(), list[i]);
+                }
+            }
+        }
+        positions.clear();
+        positions.putAll(folded.positions);
+    }
+
+    /**
+     * @return The number of players with records
+     */
+    int size() {
+        return positions.size();
+    }
+}
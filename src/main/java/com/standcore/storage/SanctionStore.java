@@ -0,0 +1,53 @@
+package com.standcore.storage;
+
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.managers.SanctionsManager.SanctionType;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface SanctionStore {
+
+    /**
+     * Saves a sanction to a player's history
+     * @param playerName The player name
+     * @param sanction The sanction
+     * @throws IOException if the sanction could not be saved
+     */
+    void saveSanction(String playerName, Sanction sanction) throws IOException;
+
+    /**
+     * Saves several sanctions for the same player without making them durable yet.
+     * Callers must call {@link #flush()} to commit the batch.
+     * @param playerName The player name
+     * @param sanctions The sanctions
+     * @throws IOException if the sanctions could not be written
+     */
+    void saveSanctions(String playerName, List<Sanction> sanctions) throws IOException;
+
+    /**
+     * Makes every batched write durable
+     * @throws IOException if the writes could not be committed
+     */
+    void flush() throws IOException;
+
+    /**
+     * Gets a player's sanction history
+     * @param playerName The player name
+     * @return List of sanctions (newest first)
+     */
+    List<Sanction> getSanctionHistory(String playerName);
+
+    /**
+     * Gets all sanctions of a type that have not expired yet
+     * @param type The sanction type
+     * @param now The current time in milliseconds
+     * @return List of active sanctions
+     */
+    List<Sanction> getActiveSanctions(SanctionType type, long now);
+
+    /**
+     * Releases any resources held by this store
+     */
+    void close();
+}
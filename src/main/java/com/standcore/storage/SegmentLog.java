@@ -0,0 +1,540 @@
+package com.standcore.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented append-only record log with a folded snapshot.
+ * <p>
+ * Every record is framed as {@code [int length][int crc32][payload]}. New records are
+ * appended to the active segment, which is sealed and replaced once it grows past the
+ * segment size. Compaction folds the snapshot and every sealed segment into a new
+ * snapshot file, so recovery only has to read the snapshot plus the segments written
+ * since the last compaction. Folding rewrites the whole snapshot, so it waits until
+ * enough sealed segments have piled up to make that worth it.
+ * <p>
+ * A record whose checksum does not match is skipped. A torn record at the end of the
+ * active segment is truncated away. Sealed files are never truncated, a damaged frame
+ * header there is logged and reading resumes at the next frame that checks out.
+ * <p>
+ * Records are addressed by a position packing the file id into the upper 32 bits and
+ * the frame offset into the lower 32 bits. File id 0 is the snapshot.
+ * <p>
+ * Sealed segments and the snapshot never change once written, so they are memory-mapped
+ * on first read and records are returned as slices of the mapping without copying.
+ * Only the active segment is read through its file channel.
+ */
+public class SegmentLog {
+    private static final int SNAPSHOT_MAGIC = 0x53435350;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER = 16;
+    private static final int FRAME_HEADER = 8;
+    private static final int MAX_RECORD = 1 << 20;
+    private static final int SNAPSHOT_ID = 0;
+
+    private final File directory;
+    private final long segmentSize;
+    private final Logger logger;
+    private final Map<Integer, FileChannel> readers;
+    private final Map<Integer, MappedByteBuffer> mapped;
+    private FileChannel active;
+    private int activeId;
+    private long activeSize;
+    private int snapshotCovers;
+
+    public SegmentLog(File directory, long segmentSize, Logger logger) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.logger = logger;
+        this.readers = new TreeMap<>();
+        this.mapped = new HashMap<>();
+    }
+
+    /**
+     * Opens the log and replays every valid record in order
+     * @param visitor Receives each record with its position
+     * @throws IOException if the log could not be opened
+     */
+    public synchronized void open(RecordVisitor visitor) throws IOException {
+        Files.createDirectories(directory.toPath());
+
+        // Snapshot first, it covers every segment up to snapshotCovers
+        File snapshot = snapshotFile();
+        snapshotCovers = 0;
+        if (snapshot.exists()) {
+            FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.remaining() == SNAPSHOT_HEADER && header.getInt() == SNAPSHOT_MAGIC
+                && header.getInt() == SNAPSHOT_VERSION) {
+                snapshotCovers = header.getInt();
+                int expected = header.getInt();
+                int replayed = replay(SNAPSHOT_ID, channel, SNAPSHOT_HEADER, false, visitor);
+                if (replayed != expected) {
+                    logger.warning("Snapshot holds " + replayed + " of " + expected + " records");
+                }
+                readers.put(SNAPSHOT_ID, channel);
+            } else {
+                channel.close();
+                logger.severe("Ignoring unreadable snapshot " + snapshot.getName());
+            }
+        }
+
+        // Then every segment written since, dropping the ones already folded into the snapshot
+        List<Integer> segments = listSegments();
+        int last = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        for (int id : segments) {
+            if (id <= snapshotCovers) {
+                Files.deleteIfExists(segmentFile(id).toPath());
+                continue;
+            }
+            FileChannel channel = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.READ);
+            replay(id, channel, 0, id == last, visitor);
+            readers.put(id, channel);
+        }
+
+        // Keep appending to the newest segment, or start a new one
+        if (last > snapshotCovers) {
+            openActive(last);
+        } else {
+            openActive(Math.max(last, snapshotCovers) + 1);
+        }
+    }
+
+    /**
+     * Appends a record to the active segment without forcing it to disk
+     * @param payload The record payload
+     * @return The record's position
+     * @throws IOException if the record could not be written
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        if (activeSize >= segmentSize) {
+            roll();
+        }
+
+        ByteBuffer frame = frame(ByteBuffer.wrap(payload));
+        long offset = activeSize;
+        while (frame.hasRemaining()) {
+            active.write(frame, activeSize + frame.position());
+        }
+        activeSize += FRAME_HEADER + payload.length;
+        return position(activeId, offset);
+    }
+
+    /**
+     * Forces every appended record to disk
+     * @throws IOException if the segment could not be synced
+     */
+    public synchronized void sync() throws IOException {
+        if (active != null) {
+            active.force(false);
+        }
+    }
+
+    /**
+     * Reads a record's payload. Records in sealed files are returned as a read-only
+     * slice of the file mapping and must not be held on to after the next compaction.
+     * @param position The record's position
+     * @return The payload, or null if the record is unreadable
+     * @throws IOException if the file could not be read
+     */
+    public ByteBuffer read(long position) throws IOException {
+        int id = fileId(position);
+        FileChannel channel;
+        ByteBuffer mapping;
+        synchronized (this) {
+            channel = readers.get(id);
+            if (channel == null) return null;
+            mapping = id == activeId ? null : map(id, channel);
+        }
+
+        long offset = offset(position);
+        return mapping != null ? readMapped(mapping, offset) : readChannel(channel, offset);
+    }
+
+    /**
+     * Writes a new snapshot holding the current snapshot plus every sealed segment.
+     * The active segment is left alone. The snapshot is not visible until
+     * {@link #install(Snapshot)} is called.
+     * @param minSegments Sealed segments needed before folding is worth a rewrite
+     * @param filter Decides which records survive, receives each payload in log order
+     * @param visitor Receives each surviving record with its position in the new snapshot
+     * @return The prepared snapshot, or null if there is not enough to fold
+     * @throws IOException if the snapshot could not be written
+     */
+    public Snapshot prepareSnapshot(int minSegments, RecordFilter filter, RecordVisitor visitor) throws IOException {
+        List<Integer> folded = new ArrayList<>();
+        int sealed = 0;
+        synchronized (this) {
+            for (int id : readers.keySet()) {
+                if (id == activeId) continue;
+                folded.add(id);
+                if (id != SNAPSHOT_ID) sealed++;
+            }
+        }
+        if (sealed < Math.max(1, minSegments)) {
+            return null;
+        }
+
+        Snapshot snapshot = new Snapshot(new File(directory, "snapshot.tmp"), folded.get(folded.size() - 1));
+
+        try (FileChannel out = FileChannel.open(snapshot.file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long[] offset = { SNAPSHOT_HEADER };
+            int[] count = { 0 };
+            IOException[] failure = { null };
+
+            for (int id : folded) {
+                FileChannel in;
+                synchronized (this) {
+                    in = readers.get(id);
+                }
+                scan(in, id == SNAPSHOT_ID ? SNAPSHOT_HEADER : 0, true, (position, payload) -> {
+                    if (failure[0] != null || !filter.keep(payload.duplicate())) return;
+
+                    long start = offset[0];
+                    try {
+                        ByteBuffer frame = frame(payload);
+                        while (frame.hasRemaining()) {
+                            offset[0] += out.write(frame, offset[0]);
+                        }
+                    } catch (IOException e) {
+                        failure[0] = e;
+                        return;
+                    }
+                    count[0]++;
+                    visitor.accept(position(SNAPSHOT_ID, start), payload);
+                });
+                if (failure[0] != null) throw failure[0];
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+            header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(snapshot.covers).putInt(count[0]);
+            header.flip();
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+            out.force(true);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Atomically replaces the snapshot and deletes the segments it folded
+     * @param snapshot The prepared snapshot
+     * @throws IOException if the snapshot could not be installed
+     */
+    public synchronized void install(Snapshot snapshot) throws IOException {
+        FileChannel old = readers.remove(SNAPSHOT_ID);
+        if (old != null) old.close();
+        mapped.remove(SNAPSHOT_ID);
+
+        Files.move(snapshot.file.toPath(), snapshotFile().toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotCovers = snapshot.covers;
+        readers.put(SNAPSHOT_ID, FileChannel.open(snapshotFile().toPath(), StandardOpenOption.READ));
+
+        List<Integer> ids = new ArrayList<>(readers.keySet());
+        for (int id : ids) {
+            if (id != SNAPSHOT_ID && id <= snapshot.covers) {
+                readers.remove(id).close();
+                mapped.remove(id);
+                try {
+                    Files.deleteIfExists(segmentFile(id).toPath());
+                } catch (IOException e) {
+                    // A mapping that has not been collected yet can keep the file locked on some
+                    // platforms, the next open deletes folded segments anyway
+                    logger.warning("Could not delete folded segment " + id + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every open file
+     */
+    public synchronized void close() {
+        try {
+            if (active != null) {
+                active.force(false);
+                active.close();
+                active = null;
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to close active segment", e);
+        }
+        for (FileChannel channel : readers.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        readers.clear();
+        mapped.clear();
+    }
+
+    /**
+     * Checks whether a record is part of the files a snapshot folded
+     * @param position The record's position
+     * @param snapshot The snapshot
+     * @return true if the snapshot replaces the file holding the record
+     */
+    public static boolean isFolded(long position, Snapshot snapshot) {
+        return fileId(position) <= snapshot.covers;
+    }
+
+    /**
+     * Replays every frame in a file
+     * @param active Whether this is the segment appends continue in, only its torn tail is truncated
+     * @return The number of valid records
+     */
+    private int replay(int id, FileChannel channel, long start, boolean active, RecordVisitor visitor)
+            throws IOException {
+        int[] count = { 0 };
+        long end = scan(channel, start, !active, (position, payload) -> {
+            count[0]++;
+            visitor.accept(position(id, position), payload);
+        });
+
+        if (end < channel.size() && active) {
+            logger.warning("Truncating torn tail of segment " + id + " at offset " + end);
+            try (FileChannel writer = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.WRITE)) {
+                writer.truncate(end);
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * Scans the frames of a file, skipping records with a bad checksum
+     * @param sealed Whether to skip past a damaged frame header instead of stopping at it
+     * @param visitor Receives each valid record with its offset in the file
+     * @return The offset just past the last complete frame
+     */
+    private long scan(FileChannel channel, long start, boolean sealed, RecordVisitor visitor)
+            throws IOException {
+        long size = channel.size();
+        long offset = start;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+
+        while (offset + FRAME_HEADER <= size) {
+            header.clear();
+            readFully(channel, header, offset);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || length > MAX_RECORD || offset + FRAME_HEADER + length > size) {
+                if (!sealed) break;
+
+                long next = nextFrame(channel, offset + 1);
+                logger.warning("Skipping " + (next - offset) + " damaged bytes at offset " + offset);
+                offset = next;
+                continue;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, offset + FRAME_HEADER);
+            payload.flip();
+            if (checksum(payload) == checksum) {
+                visitor.accept(offset, payload);
+            } else {
+                logger.warning("Skipping record with bad checksum at offset " + offset);
+            }
+            offset += FRAME_HEADER + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Finds the next frame in a sealed file whose header and checksum check out
+     * @return Its offset, or the file size if none is left
+     */
+    private static long nextFrame(FileChannel channel, long from) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) return size;
+
+        ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        for (long offset = from; offset + FRAME_HEADER <= size; offset++) {
+            // Zeroed space would pass as empty records, nothing writes those
+            if (mapping.getInt((int) offset) > 0 && readMapped(mapping, offset) != null) {
+                return offset;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Maps a sealed file read-only, caching the mapping until the file is folded
+     * @return The mapping, or null if the file is too large to map
+     */
+    private MappedByteBuffer map(int id, FileChannel channel) throws IOException {
+        MappedByteBuffer mapping = mapped.get(id);
+        if (mapping == null && channel.size() <= Integer.MAX_VALUE) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.put(id, mapping);
+        }
+        return mapping;
+    }
+
+    /**
+     * Slices a record out of a mapped file
+     */
+    private static ByteBuffer readMapped(ByteBuffer mapping, long offset) {
+        if (offset + FRAME_HEADER > mapping.capacity()) return null;
+
+        int start = (int) offset;
+        int length = mapping.getInt(start);
+        int checksum = mapping.getInt(start + 4);
+        if (length < 0 || length > MAX_RECORD || start + FRAME_HEADER + length > mapping.capacity()) {
+            return null;
+        }
+
+        ByteBuffer payload = mapping.duplicate();
+        payload.limit(start + FRAME_HEADER + length);
+        payload.position(start + FRAME_HEADER);
+        payload = payload.slice();
+        return checksum(payload) == checksum ? payload : null;
+    }
+
+    /**
+     * Reads a record from the active segment
+     */
+    private static ByteBuffer readChannel(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        readFully(channel, header, offset);
+        header.flip();
+        if (header.remaining() < FRAME_HEADER) return null;
+
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length < 0 || length > MAX_RECORD) return null;
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + FRAME_HEADER);
+        payload.flip();
+        return checksum(payload) == checksum ? payload : null;
+    }
+
+    /**
+     * Seals the active segment and starts the next one
+     */
+    private void roll() throws IOException {
+        active.force(false);
+        active.close();
+        openActive(activeId + 1);
+    }
+
+    private void openActive(int id) throws IOException {
+        File file = segmentFile(id);
+        active = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.READ);
+        activeId = id;
+        activeSize = active.size();
+        if (!readers.containsKey(id)) {
+            readers.put(id, FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        }
+    }
+
+    private List<Integer> listSegments() {
+        List<Integer> ids = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) return ids;
+
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith("segment-") && name.endsWith(".log")) {
+                try {
+                    ids.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private File segmentFile(int id) {
+        return new File(directory, String.format("segment-%08d.log", id));
+    }
+
+    private File snapshotFile() {
+        return new File(directory, "snapshot.dat");
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) break;
+        }
+    }
+
+    private static ByteBuffer frame(ByteBuffer payload) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.remaining());
+        frame.putInt(payload.remaining());
+        frame.putInt(checksum(payload));
+        frame.put(payload.duplicate());
+        frame.flip();
+        return frame;
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    static long position(int fileId, long offset) {
+        return ((long) fileId << 32) | offset;
+    }
+
+    static int fileId(long position) {
+        return (int) (position >>> 32);
+    }
+
+    static long offset(long position) {
+        return position & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Receives replayed records
+     */
+    public interface RecordVisitor {
+        void accept(long position, ByteBuffer payload);
+    }
+
+    /**
+     * Decides which records survive compaction
+     */
+    public interface RecordFilter {
+        boolean keep(ByteBuffer payload);
+    }
+
+    /**
+     * A snapshot written by {@link #prepareSnapshot} that has not been installed yet
+     */
+    public static class Snapshot {
+        private final File file;
+        private final int covers;
+
+        private Snapshot(File file, int covers) {
+            this.file = file;
+            this.covers = covers;
+        }
+    }
+}
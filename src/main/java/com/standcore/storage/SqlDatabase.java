@@ -0,0 +1,135 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Embedded SQLite database shared by the SQL sanction and grant stores.
+ * All access goes through a single connection guarded by this object's monitor,
+ * with prepared statements cached per SQL string.
+ */
+public class SqlDatabase {
+    private final StandCore plugin;
+    private final File file;
+    private final Map<String, PreparedStatement> statements;
+    private Connection connection;
+
+    public SqlDatabase(StandCore plugin, String fileName) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), fileName);
+        this.statements = new HashMap<>();
+    }
+
+    /**
+     * Opens the connection and creates the schema if needed
+     * @throws SQLException if the database could not be opened
+     */
+    public synchronized void open() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite driver not found", e);
+        }
+
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+
+            statement.execute("CREATE TABLE IF NOT EXISTS sanctions ("
+                + "id CHAR(36) PRIMARY KEY, "
+                + "player VARCHAR(36) NOT NULL, "
+                + "type VARCHAR(8) NOT NULL, "
+                + "target VARCHAR(36) NOT NULL, "
+                + "staff VARCHAR(36) NOT NULL, "
+                + "staff_uuid CHAR(36) NOT NULL, "
+                + "reason TEXT, "
+                + "timestamp BIGINT NOT NULL, "
+                + "expiration BIGINT NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_sanctions_player "
+                + "ON sanctions (player, timestamp)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_sanctions_type "
+                + "ON sanctions (type, expiration)");
+
+            statement.execute("CREATE TABLE IF NOT EXISTS grants ("
+                + "id CHAR(36) PRIMARY KEY, "
+                + "player_uuid CHAR(36) NOT NULL, "
+                + "rank_name VARCHAR(64) NOT NULL, "
+                + "granter VARCHAR(36) NOT NULL, "
+                + "granter_uuid CHAR(36) NOT NULL, "
+                + "granted BIGINT NOT NULL, "
+                + "expiration BIGINT NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_grants_player "
+                + "ON grants (player_uuid, granted)");
+        }
+
+        // Writes are grouped into explicit transactions, see commit()
+        connection.setAutoCommit(false);
+        connection.commit();
+    }
+
+    /**
+     * Commits every statement executed since the last commit as one transaction.
+     * Callers must hold this object's monitor.
+     * @throws SQLException if the commit failed
+     */
+    void commit() throws SQLException {
+        connection.commit();
+    }
+
+    /**
+     * Gets a cached prepared statement, preparing it on first use.
+     * Callers must hold this object's monitor while using the statement.
+     * @param sql The SQL string
+     * @return The prepared statement
+     * @throws SQLException if the statement could not be prepared
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Closes all cached statements and the connection
+     */
+    public synchronized void close() {
+        if (connection != null) {
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to commit pending writes", e);
+            }
+        }
+
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statements.clear();
+
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to close database", e);
+            }
+            connection = null;
+        }
+    }
+}
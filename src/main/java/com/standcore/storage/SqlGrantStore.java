@@ -0,0 +1,105 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Grant storage backed by the embedded SQL database
+ */
+public class SqlGrantStore implements GrantStore {
+    private static final String INSERT = "INSERT OR REPLACE INTO grants "
+        + "(id, player_uuid, rank_name, granter, granter_uuid, granted, expiration) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_HISTORY = "SELECT * FROM grants "
+        + "WHERE player_uuid = ? ORDER BY granted DESC";
+
+    private final StandCore plugin;
+    private final SqlDatabase database;
+
+    public SqlGrantStore(StandCore plugin, SqlDatabase database) {
+        this.plugin = plugin;
+        this.database = database;
+    }
+
+    @Override
+    public void saveGrant(UUID uuid, Grant grant) throws IOException {
+        synchronized (database) {
+            saveGrants(uuid, Collections.singletonList(grant));
+            flush();
+        }
+    }
+
+    @Override
+    public void saveGrants(UUID uuid, List<Grant> grants) throws IOException {
+        synchronized (database) {
+            try {
+                PreparedStatement statement = database.prepare(INSERT);
+                for (Grant grant : grants) {
+                    statement.setString(1, grant.getId().toString());
+                    statement.setString(2, uuid.toString());
+                    statement.setString(3, grant.getRank());
+                    statement.setString(4, grant.getGranter());
+                    statement.setString(5, grant.getGranterUUID().toString());
+                    statement.setLong(6, grant.getGranted());
+                    statement.setLong(7, grant.getExpiration());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException e) {
+                throw new IOException("Failed to save grant history for " + uuid, e);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (database) {
+            try {
+                database.commit();
+            } catch (SQLException e) {
+                throw new IOException("Failed to commit grant history", e);
+            }
+        }
+    }
+
+    @Override
+    public List<Grant> getGrantHistory(UUID uuid) {
+        List<Grant> grants = new ArrayList<>();
+        synchronized (database) {
+            try {
+                PreparedStatement statement = database.prepare(SELECT_HISTORY);
+                statement.setString(1, uuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        grants.add(new Grant(
+                            UUID.fromString(result.getString("id")),
+                            result.getString("rank_name"),
+                            result.getString("granter"),
+                            UUID.fromString(result.getString("granter_uuid")),
+                            result.getLong("granted"),
+                            result.getLong("expiration")
+                        ));
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load grant history for " + uuid, e);
+            }
+        }
+        return grants;
+    }
+
+    @Override
+    public void close() {
+        database.close();
+    }
+}
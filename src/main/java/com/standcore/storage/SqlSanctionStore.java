@@ -0,0 +1,142 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.managers.SanctionsManager.SanctionType;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Sanction storage backed by the embedded SQL database
+ */
+public class SqlSanctionStore implements SanctionStore {
+    private static final String INSERT = "INSERT OR REPLACE INTO sanctions "
+        + "(id, player, type, target, staff, staff_uuid, reason, timestamp, expiration) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_HISTORY = "SELECT * FROM sanctions "
+        + "WHERE player = ? ORDER BY timestamp DESC";
+    private static final String SELECT_ACTIVE = "SELECT * FROM sanctions "
+        + "WHERE type = ? AND (expiration = -1 OR expiration > ?)";
+
+    private final StandCore plugin;
+    private final SqlDatabase database;
+
+    public SqlSanctionStore(StandCore plugin, SqlDatabase database) {
+        this.plugin = plugin;
+        this.database = database;
+    }
+
+    @Override
+    public void saveSanction(String playerName, Sanction sanction) throws IOException {
+        synchronized (database) {
+            saveSanctions(playerName, Collections.singletonList(sanction));
+            flush();
+        }
+    }
+
+    @Override
+    public void saveSanctions(String playerName, List<Sanction> sanctions) throws IOException {
+        synchronized (database) {
+            try {
+                PreparedStatement statement = database.prepare(INSERT);
+                for (Sanction sanction : sanctions) {
+                    statement.setString(1, sanction.getId().toString());
+                    statement.setString(2, playerName);
+                    statement.setString(3, sanction.getType().name());
+                    statement.setString(4, sanction.getTarget());
+                    statement.setString(5, sanction.getStaff());
+                    statement.setString(6, sanction.getStaffUUID().toString());
+                    statement.setString(7, sanction.getReason());
+                    statement.setLong(8, sanction.getTimestamp());
+                    statement.setLong(9, sanction.getExpiration());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException e) {
+                throw new IOException("Failed to save sanction history for " + playerName, e);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (database) {
+            try {
+                database.commit();
+            } catch (SQLException e) {
+                throw new IOException("Failed to commit sanction history", e);
+            }
+        }
+    }
+
+    @Override
+    public List<Sanction> getSanctionHistory(String playerName) {
+        List<Sanction> sanctions = new ArrayList<>();
+        synchronized (database) {
+            try {
+                PreparedStatement statement = database.prepare(SELECT_HISTORY);
+                statement.setString(1, playerName);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        sanctions.add(readSanction(result));
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load sanction history for " + playerName, e);
+            }
+        }
+        return sanctions;
+    }
+
+    @Override
+    public List<Sanction> getActiveSanctions(SanctionType type, long now) {
+        List<Sanction> sanctions = new ArrayList<>();
+        synchronized (database) {
+            try {
+                PreparedStatement statement = database.prepare(SELECT_ACTIVE);
+                statement.setString(1, type.name());
+                statement.setLong(2, now);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        sanctions.add(readSanction(result));
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load active sanctions", e);
+            }
+        }
+        return sanctions;
+    }
+
+    @Override
+    public void close() {
+        database.close();
+    }
+
+    /**
+     * Reads a sanction from the current result row
+     * @param result The result set
+     * @return The sanction
+     * @throws SQLException if a column could not be read
+     */
+    private Sanction readSanction(ResultSet result) throws SQLException {
+        return new Sanction(
+            UUID.fromString(result.getString("id")),
+            SanctionType.valueOf(result.getString("type")),
+            result.getString("target"),
+            result.getString("staff"),
+            UUID.fromString(result.getString("staff_uuid")),
+            result.getString("reason"),
+            result.getLong("timestamp"),
+            result.getLong("expiration")
+        );
+    }
+}
@@ -0,0 +1,191 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.util.ConfigUtils;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.logging.Level;
+
+/**
+ * Creates the sanction and grant stores selected by database.type in config.yml
+ */
+public class StorageManager {
+    private final StandCore plugin;
+    private StorageType type;
+    private SanctionStore sanctionStore;
+    private GrantStore grantStore;
+    private WriteBehindJournal journal;
+    private CounterIndex counterIndex;
+    private ActiveSanctionIndex activeIndex;
+    private AddressIndex addressIndex;
+    private LogSanctionStore sanctionLog;
+    private LogGrantStore grantLog;
+
+    public StorageManager(StandCore plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Opens the configured backend, falling back to YAML if it cannot be opened
+     */
+    public void init() {
+        type = StorageType.fromString(ConfigUtils.getString("config", "database.type", "YAML"));
+
+        if (type == StorageType.SQLITE) {
+            SqlDatabase database = new SqlDatabase(plugin, "data/standcore.db");
+            try {
+                database.open();
+                sanctionStore = new SqlSanctionStore(plugin, database);
+                grantStore = new SqlGrantStore(plugin, database);
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to open SQLite database, falling back to YAML", e);
+                database.close();
+                type = StorageType.YAML;
+            }
+        }
+
+        if (type == StorageType.LOG) {
+            long segmentSize = Math.max(1, ConfigUtils.getInt("config", "database.log.segment-size-mb", 16)) * 1024L * 1024L;
+            sanctionLog = new LogSanctionStore(plugin, segmentSize);
+            grantLog = new LogGrantStore(plugin, segmentSize);
+            try {
+                sanctionLog.open();
+                grantLog.open();
+                sanctionStore = sanctionLog;
+                grantStore = grantLog;
+                scheduleCompaction();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to open history logs, falling back to YAML", e);
+                sanctionLog.close();
+                grantLog.close();
+                sanctionLog = null;
+                grantLog = null;
+                type = StorageType.YAML;
+            }
+        }
+
+        if (type == StorageType.YAML) {
+            sanctionStore = new YamlSanctionStore(plugin);
+            grantStore = new YamlGrantStore(plugin);
+        }
+
+        if (ConfigUtils.getBoolean("config", "database.write-behind.enabled", true)) {
+            journal = new WriteBehindJournal(plugin, sanctionStore, grantStore,
+                Math.max(16, ConfigUtils.getInt("config", "database.write-behind.queue-size", 4096)));
+            journal.start();
+            sanctionStore = journal.sanctionStore();
+            grantStore = journal.grantStore();
+        }
+
+        counterIndex = new CounterIndex(plugin);
+        counterIndex.load();
+        scheduleCheckpoints();
+        activeIndex = new ActiveSanctionIndex(plugin);
+        activeIndex.load(sanctionStore);
+        addressIndex = new AddressIndex(plugin,
+            ConfigUtils.getSettings().getAlts().getRetentionDays(),
+            ConfigUtils.getSettings().getAlts().getWindowDays());
+        addressIndex.load();
+
+        plugin.getLogger().info("Using " + type.name() + " storage"
+            + (journal != null ? " with write-behind journal" : ""));
+    }
+
+    /**
+     * Periodically folds sealed log segments into their snapshots
+     */
+    private void scheduleCompaction() {
+        long interval = Math.max(1, ConfigUtils.getInt("config", "database.log.compact-interval", 30)) * 60L * 20L;
+        int minSegments = Math.max(1, ConfigUtils.getInt("config", "database.log.compact-min-segments", 4));
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            sanctionLog.compact(minSegments);
+            grantLog.compact(minSegments);
+        }, interval, interval);
+    }
+
+    /**
+     * Periodically checkpoints the counter index, copied on the main thread and written async
+     */
+    private void scheduleCheckpoints() {
+        long interval = Math.max(1, ConfigUtils.getInt("config", "database.counters.checkpoint-interval", 5)) * 60L * 20L;
+        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+            CounterIndex.Checkpoint checkpoint = prepareCheckpoint();
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> counterIndex.save(checkpoint));
+        }, interval, interval);
+    }
+
+    /**
+     * @return A copy of the counters, keeping the players with unsaved records marked as changed
+     */
+    private CounterIndex.Checkpoint prepareCheckpoint() {
+        if (journal == null) {
+            return counterIndex.prepareCheckpoint(Collections.emptySet(), Collections.emptySet());
+        }
+        return counterIndex.prepareCheckpoint(journal.getPendingPlayers(), journal.getPendingGrantHolders());
+    }
+
+    /**
+     * Flushes pending writes within the configured deadline and closes both stores,
+     * unless the writer is still inside one of them
+     */
+    public void close() {
+        boolean writerStopped = true;
+        if (journal != null) {
+            long timeout = ConfigUtils.getInt("config", "database.write-behind.shutdown-timeout", 10) * 1000L;
+            journal.shutdown(timeout);
+            writerStopped = journal.isStopped();
+        }
+        // Players with records that were not saved stay marked, so they are recounted from history
+        if (counterIndex != null) {
+            counterIndex.save(prepareCheckpoint());
+            counterIndex.close();
+        }
+        if (activeIndex != null) {
+            activeIndex.save();
+        }
+        if (addressIndex != null) {
+            addressIndex.close();
+        }
+
+        if (!writerStopped) {
+            plugin.getLogger().severe("Write-behind writer is still running, leaving the stores open");
+            return;
+        }
+        if (sanctionStore != null) {
+            sanctionStore.close();
+        }
+        if (grantStore != null) {
+            grantStore.close();
+        }
+    }
+
+    public StorageType getType() {
+        return type;
+    }
+
+    public SanctionStore getSanctionStore() {
+        return sanctionStore;
+    }
+
+    public GrantStore getGrantStore() {
+        return grantStore;
+    }
+
+    public WriteBehindJournal getJournal() {
+        return journal;
+    }
+
+    public CounterIndex getCounterIndex() {
+        return counterIndex;
+    }
+
+    public ActiveSanctionIndex getActiveIndex() {
+        return activeIndex;
+    }
+
+    public AddressIndex getAddressIndex() {
+        return addressIndex;
+    }
+}
@@ -0,0 +1,26 @@
+package com.standcore.storage;
+
+/**
+ * Storage backends selectable through database.type
+ */
+public enum StorageType {
+    YAML,
+    SQLITE,
+    LOG;
+
+    /**
+     * Parses a storage type, defaulting to YAML for unknown values
+     * @param value The configured value
+     * @return The storage type
+     */
+    public static StorageType fromString(String value) {
+        if (value != null) {
+            for (StorageType type : values()) {
+                if (type.name().equalsIgnoreCase(value.trim())) {
+                    return type;
+                }
+            }
+        }
+        return YAML;
+    }
+}
@@ -0,0 +1,568 @@
+package com.standcore.storage;
+
+import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.managers.SanctionsManager.SanctionType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Single background writer in front of the sanction and grant stores.
+ * Records are queued by the calling thread and written by the writer thread,
+ * which coalesces everything queued for the same player into one store call
+ * and commits the whole batch with a single flush per store.
+ * Records stay visible to readers until they have been written.
+ * A player whose records keep failing to save is given up on after a few attempts,
+ * their records are appended to dead-letters.log so nothing else waits behind them.
+ */
+public class WriteBehindJournal {
+    private static final int MAX_BATCH = 512;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long OFFER_WAIT = 100;
+    private static final long MAX_OFFER_WAIT = 5000;
+    private static final long MIN_RETRY_DELAY = 500;
+    private static final long MAX_RETRY_DELAY = 30000;
+
+    private final StandCore plugin;
+    private final SanctionStore sanctionStore;
+    private final GrantStore grantStore;
+    private final BlockingQueue<Entry> queue;
+    private final Map<String, List<Sanction>> pendingSanctions;
+    private final Map<UUID, List<Grant>> pendingGrants;
+    private final List<Consumer<String>> sanctionListeners;
+    private final List<Consumer<UUID>> grantListeners;
+    private final File deadLetters;
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile boolean abandoned;
+
+    public WriteBehindJournal(StandCore plugin, SanctionStore sanctionStore, GrantStore grantStore, int capacity) {
+        this.plugin = plugin;
+        this.sanctionStore = sanctionStore;
+        this.grantStore = grantStore;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.pendingSanctions = new ConcurrentHashMap<>();
+        this.pendingGrants = new ConcurrentHashMap<>();
+        this.sanctionListeners = new CopyOnWriteArrayList<>();
+        this.grantListeners = new CopyOnWriteArrayList<>();
+        this.deadLetters = new File(plugin.getDataFolder(), "dead-letters.log");
+        this.writer = new Thread(this::run, "StandCore-Writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts the writer thread
+     */
+    public void start() {
+        running = true;
+        writer.start();
+    }
+
+    /**
+     * Stops accepting new records and waits for the queue to drain
+     * @param timeoutMillis How long to wait for pending writes
+     * @return true if every pending record was written
+     */
+    public boolean shutdown(long timeoutMillis) {
+        // No interrupt here, it would close any file channel the writer has open
+        running = false;
+        join(timeoutMillis);
+        if (!writer.isAlive() && getUnsavedCount() == 0) {
+            return true;
+        }
+
+        // Stop retrying failed batches and give the writer time to leave its current store call
+        abandoned = true;
+        join(timeoutMillis);
+        plugin.getLogger().severe("Write-behind journal did not drain in time, "
+            + getUnsavedCount() + " records were not saved");
+        return false;
+    }
+
+    /**
+     * @return true once the writer thread has exited, only then may the stores be closed
+     */
+    public boolean isStopped() {
+        return !writer.isAlive();
+    }
+
+    private void join(long timeoutMillis) {
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a callback on the writer thread for every player whose sanctions were just made durable
+     * @param listener Receives the player name
+     */
+    public void onSanctionsWritten(Consumer<String> listener) {
+        sanctionListeners.add(listener);
+    }
+
+    /**
+     * Runs a callback on the writer thread for every player whose grants were just made durable
+     * @param listener Receives the player's UUID
+     */
+    public void onGrantsWritten(Consumer<UUID> listener) {
+        grantListeners.add(listener);
+    }
+
+    /**
+     * @return A sanction store that writes through this journal
+     */
+    public SanctionStore sanctionStore() {
+        return new JournaledSanctionStore();
+    }
+
+    /**
+     * @return A grant store that writes through this journal
+     */
+    public GrantStore grantStore() {
+        return new JournaledGrantStore();
+    }
+
+    /**
+     * @return The number of records waiting to be written
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of records not yet durable, queued or in a batch that failed
+     */
+    private int getUnsavedCount() {
+        int count = 0;
+        for (List<Sanction> pending : pendingSanctions.values()) count += pending.size();
+        for (List<Grant> pending : pendingGrants.values()) count += pending.size();
+        return count;
+    }
+
+    /**
+     * @return The players with sanctions not yet durable
+     */
+    public Set<String> getPendingPlayers() {
+        return new HashSet<>(pendingSanctions.keySet());
+    }
+
+    /**
+     * @return The players with grants not yet durable
+     */
+    public Set<UUID> getPendingGrantHolders() {
+        return new HashSet<>(pendingGrants.keySet());
+    }
+
+    /**
+     * Queues an entry. If the queue is full, other threads wait a few seconds for room and the
+     * main thread does not wait at all. Only the writer thread touches the stores, so an entry
+     * that cannot be queued goes to the dead letter file instead.
+     * @param entry The entry
+     */
+    private void submit(Entry entry) {
+        if (entry.sanction != null) {
+            pendingSanctions.compute(entry.playerName, (k, list) -> {
+                if (list == null) list = new CopyOnWriteArrayList<>();
+                list.add(entry.sanction);
+                return list;
+            });
+        } else {
+            pendingGrants.compute(entry.uuid, (k, list) -> {
+                if (list == null) list = new CopyOnWriteArrayList<>();
+                list.add(entry.grant);
+                return list;
+            });
+        }
+
+        if (queue.offer(entry)) {
+            return;
+        }
+
+        if (!plugin.getServer().isPrimaryThread()) {
+            long deadline = System.currentTimeMillis() + MAX_OFFER_WAIT;
+            try {
+                while (writer.isAlive() && System.currentTimeMillis() < deadline) {
+                    if (queue.offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        plugin.getLogger().severe("Write-behind queue is full or the writer has stopped, a record for "
+            + entry.key() + " was not saved");
+        List<Entry> lost = new ArrayList<>();
+        lost.add(entry);
+        deadLetter(lost);
+    }
+
+    /**
+     * Writer thread loop. The records of a player that failed to save stay pending, still
+     * visible through the overlay, and are retried with a growing delay alongside new records.
+     * After MAX_ATTEMPTS failures in a row they are dead-lettered.
+     */
+    private void run() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        Map<Object, Integer> attempts = new HashMap<>();
+        long retryDelay = 0;
+        while (!abandoned && (running || !queue.isEmpty() || !batch.isEmpty())) {
+            try {
+                if (batch.isEmpty()) {
+                    Entry first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                    if (first == null) continue;
+                    batch.add(first);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+            List<Entry> failed;
+            try {
+                failed = writeBatch(batch);
+            } catch (IOException | RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Write-behind journal failed to commit "
+                    + batch.size() + " records", e);
+                failed = new ArrayList<>(batch);
+            }
+            batch.clear();
+            if (failed.isEmpty()) {
+                attempts.clear();
+                retryDelay = 0;
+                continue;
+            }
+
+            // Count failures per player, a player that keeps failing no longer holds up the rest
+            Map<Object, List<Entry>> byKey = new LinkedHashMap<>();
+            for (Entry entry : failed) {
+                byKey.computeIfAbsent(entry.key(), k -> new ArrayList<>()).add(entry);
+            }
+            attempts.keySet().retainAll(byKey.keySet());
+            for (Map.Entry<Object, List<Entry>> entry : byKey.entrySet()) {
+                if (attempts.merge(entry.getKey(), 1, Integer::sum) >= MAX_ATTEMPTS) {
+                    attempts.remove(entry.getKey());
+                    plugin.getLogger().severe("Giving up on " + entry.getValue().size() + " records for "
+                        + entry.getKey() + " after " + MAX_ATTEMPTS + " attempts, see " + deadLetters.getName());
+                    deadLetter(entry.getValue());
+                } else {
+                    batch.addAll(entry.getValue());
+                }
+            }
+            if (batch.isEmpty()) continue;
+
+            retryDelay = Math.min(MAX_RETRY_DELAY, Math.max(MIN_RETRY_DELAY, retryDelay * 2));
+            plugin.getLogger().warning("Retrying " + batch.size() + " records in " + retryDelay + "ms");
+            if (!sleep(retryDelay)) break;
+        }
+    }
+
+    /**
+     * Waits before a retry, returning early once the journal is shut down
+     * @return false if the writer should give up
+     */
+    private boolean sleep(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        try {
+            while (!abandoned && System.currentTimeMillis() < deadline) {
+                Thread.sleep(Math.min(OFFER_WAIT, millis));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !abandoned;
+    }
+
+    /**
+     * Coalesces a batch per player, writes it and commits it once. A player whose records
+     * fail to save does not stop the others, the stores replace records by id so writing
+     * them again later is safe.
+     * @param batch The entries to write
+     * @return The entries of the players that failed, still in the overlay
+     * @throws IOException if a commit failed, nothing is removed from the overlay then
+     */
+    private List<Entry> writeBatch(List<Entry> batch) throws IOException {
+        Map<String, List<Sanction>> sanctions = new LinkedHashMap<>();
+        Map<UUID, List<Grant>> grants = new LinkedHashMap<>();
+
+        for (Entry entry : batch) {
+            if (entry.sanction != null) {
+                sanctions.computeIfAbsent(entry.playerName, k -> new ArrayList<>()).add(entry.sanction);
+            } else {
+                grants.computeIfAbsent(entry.uuid, k -> new ArrayList<>()).add(entry.grant);
+            }
+        }
+
+        Set<Object> failed = new HashSet<>();
+        for (Map.Entry<String, List<Sanction>> entry : sanctions.entrySet()) {
+            try {
+                sanctionStore.saveSanctions(entry.getKey(), entry.getValue());
+            } catch (IOException | RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to save sanctions for " + entry.getKey(), e);
+                failed.add(entry.getKey());
+            }
+        }
+        for (Map.Entry<UUID, List<Grant>> entry : grants.entrySet()) {
+            try {
+                grantStore.saveGrants(entry.getKey(), entry.getValue());
+            } catch (IOException | RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to save grants for " + entry.getKey(), e);
+                failed.add(entry.getKey());
+            }
+        }
+
+        if (!failed.containsAll(sanctions.keySet())) sanctionStore.flush();
+        if (!failed.containsAll(grants.keySet())) grantStore.flush();
+
+        List<Entry> remaining = new ArrayList<>();
+        List<Entry> written = new ArrayList<>();
+        for (Entry entry : batch) {
+            (failed.contains(entry.key()) ? remaining : written).add(entry);
+        }
+        release(written);
+        return remaining;
+    }
+
+    /**
+     * Stops overlaying records on reads, once they are durable or given up on
+     * @param entries The entries
+     */
+    private void release(List<Entry> entries) {
+        Map<String, List<Sanction>> sanctions = new LinkedHashMap<>();
+        Map<UUID, List<Grant>> grants = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            if (entry.sanction != null) {
+                sanctions.computeIfAbsent(entry.playerName, k -> new ArrayList<>()).add(entry.sanction);
+            } else {
+                grants.computeIfAbsent(entry.uuid, k -> new ArrayList<>()).add(entry.grant);
+            }
+        }
+
+        for (Map.Entry<String, List<Sanction>> entry : sanctions.entrySet()) {
+            pendingSanctions.computeIfPresent(entry.getKey(), (k, list) -> {
+                list.removeAll(entry.getValue());
+                return list.isEmpty() ? null : list;
+            });
+        }
+        for (Map.Entry<UUID, List<Grant>> entry : grants.entrySet()) {
+            pendingGrants.computeIfPresent(entry.getKey(), (k, list) -> {
+                list.removeAll(entry.getValue());
+                return list.isEmpty() ? null : list;
+            });
+        }
+
+        // A read that raced the write may have cached what was on disk mid-write
+        for (String playerName : sanctions.keySet()) {
+            for (Consumer<String> listener : sanctionListeners) listener.accept(playerName);
+        }
+        for (UUID uuid : grants.keySet()) {
+            for (Consumer<UUID> listener : grantListeners) listener.accept(uuid);
+        }
+    }
+
+    /**
+     * Appends records that could not be saved to the dead letter file, one tab separated line
+     * each, so they can be restored by hand, and stops overlaying them
+     * @param entries The entries
+     */
+    private synchronized void deadLetter(List<Entry> entries) {
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.sanction != null) {
+                Sanction sanction = entry.sanction;
+                lines.add(String.join("\t", "sanction", entry.playerName, sanction.getId().toString(),
+                    sanction.getType().name(), sanction.getTarget(), sanction.getStaff(),
+                    String.valueOf(sanction.getStaffUUID()), String.valueOf(sanction.getTimestamp()),
+                    String.valueOf(sanction.getExpiration()), sanction.getReason().replaceAll("\\s", " ")));
+            } else {
+                Grant grant = entry.grant;
+                lines.add(String.join("\t", "grant", entry.uuid.toString(), grant.getId().toString(),
+                    grant.getRank(), grant.getGranter(), String.valueOf(grant.getGranterUUID()),
+                    String.valueOf(grant.getGranted()), String.valueOf(grant.getExpiration())));
+            }
+        }
+
+        try {
+            Files.write(deadLetters.toPath(), lines, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to write dead letters, lost records:\n"
+                + String.join("\n", lines), e);
+        }
+        release(entries);
+    }
+
+    /**
+     * A queued sanction or grant
+     */
+    private static class Entry {
+        private final String playerName;
+        private final UUID uuid;
+        private final Sanction sanction;
+        private final Grant grant;
+
+        private Entry(String playerName, Sanction sanction) {
+            this.playerName = playerName;
+            this.uuid = null;
+            this.sanction = sanction;
+            this.grant = null;
+        }
+
+        private Entry(UUID uuid, Grant grant) {
+            this.playerName = null;
+            this.uuid = uuid;
+            this.sanction = null;
+            this.grant = grant;
+        }
+
+        /**
+         * @return The player the entry belongs to, records of one player are written together
+         */
+        private Object key() {
+            return sanction != null ? playerName : uuid;
+        }
+    }
+
+    /**
+     * Sanction store view that queues writes and overlays pending records on reads
+     */
+    private class JournaledSanctionStore implements SanctionStore {
+
+        @Override
+        public void saveSanction(String playerName, Sanction sanction) {
+            submit(new Entry(playerName, sanction));
+        }
+
+        @Override
+        public void saveSanctions(String playerName, List<Sanction> sanctions) {
+            for (Sanction sanction : sanctions) {
+                submit(new Entry(playerName, sanction));
+            }
+        }
+
+        @Override
+        public void flush() {
+            // The writer thread commits every batch it writes
+        }
+
+        @Override
+        public List<Sanction> getSanctionHistory(String playerName) {
+            // Snapshot pending records before reading, a record written in between shows up in the store
+            List<Sanction> pending = pendingSanctions.get(playerName);
+            List<Sanction> overlay = pending == null ? null : new ArrayList<>(pending);
+
+            List<Sanction> sanctions = sanctionStore.getSanctionHistory(playerName);
+            if (overlay == null || overlay.isEmpty()) {
+                return sanctions;
+            }
+
+            Set<UUID> ids = new HashSet<>();
+            for (Sanction sanction : sanctions) ids.add(sanction.getId());
+            for (Sanction sanction : overlay) {
+                if (ids.add(sanction.getId())) sanctions.add(sanction);
+            }
+
+            sanctions.sort((s1, s2) -> Long.compare(s2.getTimestamp(), s1.getTimestamp()));
+            return sanctions;
+        }
+
+        @Override
+        public List<Sanction> getActiveSanctions(SanctionType type, long now) {
+            List<Sanction> overlay = new ArrayList<>();
+            for (List<Sanction> pending : pendingSanctions.values()) {
+                for (Sanction sanction : pending) {
+                    if (sanction.getType() == type
+                        && (sanction.getExpiration() == -1 || sanction.getExpiration() > now)) {
+                        overlay.add(sanction);
+                    }
+                }
+            }
+
+            List<Sanction> sanctions = sanctionStore.getActiveSanctions(type, now);
+            Set<UUID> ids = new HashSet<>();
+            for (Sanction sanction : sanctions) ids.add(sanction.getId());
+            for (Sanction sanction : overlay) {
+                if (ids.add(sanction.getId())) sanctions.add(sanction);
+            }
+            return sanctions;
+        }
+
+        @Override
+        public void close() {
+            sanctionStore.close();
+        }
+    }
+
+    /**
+     * Grant store view that queues writes and overlays pending records on reads
+     */
+    private class JournaledGrantStore implements GrantStore {
+
+        @Override
+        public void saveGrant(UUID uuid, Grant grant) {
+            submit(new Entry(uuid, grant));
+        }
+
+        @Override
+        public void saveGrants(UUID uuid, List<Grant> grants) {
+            for (Grant grant : grants) {
+                submit(new Entry(uuid, grant));
+            }
+        }
+
+        @Override
+        public void flush() {
+            // The writer thread commits every batch it writes
+        }
+
+        @Override
+        public List<Grant> getGrantHistory(UUID uuid) {
+            List<Grant> pending = pendingGrants.get(uuid);
+            List<Grant> overlay = pending == null ? null : new ArrayList<>(pending);
+
+            List<Grant> grants = grantStore.getGrantHistory(uuid);
+            if (overlay == null || overlay.isEmpty()) {
+                return grants;
+            }
+
+            Set<UUID> ids = new HashSet<>();
+            for (Grant grant : grants) ids.add(grant.getId());
+            for (Grant grant : overlay) {
+                if (ids.add(grant.getId())) grants.add(grant);
+            }
+
+            grants.sort((g1, g2) -> Long.compare(g2.getGranted(), g1.getGranted()));
+            return grants;
+        }
+
+        @Override
+        public void close() {
+            grantStore.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.standcore.storage;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import com.standcore.StandCore;
+import com.standcore.managers.GrantsManager.Grant;
+import com.standcore.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Legacy grant storage, one YAML document per player under data/grants
+ */
+public class YamlGrantStore implements GrantStore {
+    private final StandCore plugin;
+    private final File directory;
+
+    public YamlGrantStore(StandCore plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "data/grants");
+    }
+
+    @Override
+    public void saveGrant(UUID uuid, Grant grant) throws IOException {
+        saveGrants(uuid, Collections.singletonList(grant));
+        flush();
+    }
+
+    @Override
+    public void saveGrants(UUID uuid, List<Grant> grants) throws IOException {
+        File file = new File(directory, uuid + ".yml");
+        // Strict load, a history that cannot be parsed must not be overwritten with only the new records
+        FileConfiguration config = FileUtils.loadYaml(file);
+
+        for (Grant grant : grants) {
+            writeGrant(config, grant);
+        }
+
+        FileUtils.saveAtomically(config, file);
+    }
+
+    @Override
+    public void flush() {
+        // Every save is synced before it replaces the file
+    }
+
+    @Override
+    public List<Grant> getGrantHistory(UUID uuid) {
+        File file = new File(directory, uuid + ".yml");
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+
+        List<Grant> grants = readGrants(YamlConfiguration.loadConfiguration(file));
+
+        // Sort by date (newest first)
+        grants.sort((g1, g2) -> Long.compare(g2.getGranted(), g1.getGranted()));
+        return grants;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release, every call opens its own file
+    }
+
+    /**
+     * Writes a grant into a player's YAML document
+     * @param config The player's document
+     * @param grant The grant
+     */
+    static void writeGrant(FileConfiguration config, Grant grant) {
+        ConfigurationSection grantSection = config.createSection("grants." + grant.getId().toString());
+        grantSection.set("rank", grant.getRank());
+        grantSection.set("granter", grant.getGranter());
+        grantSection.set("granter-uuid", grant.getGranterUUID().toString());
+        grantSection.set("granted", grant.getGranted());
+        grantSection.set("expiration", grant.getExpiration());
+    }
+
+    /**
+     * Reads every grant from a player's YAML document
+     * @param config The player's document
+     * @return List of grants in file order
+     */
+    static List<Grant> readGrants(FileConfiguration config) {
+        List<Grant> grants = new ArrayList<>();
+
+        ConfigurationSection grantsSection = config.getConfigurationSection("grants");
+        if (grantsSection == null) return grants;
+
+        for (String key : grantsSection.getKeys(false)) {
+            ConfigurationSection grantSection = grantsSection.getConfigurationSection(key);
+            if (grantSection == null) continue;
+
+            grants.add(new Grant(
+                UUID.fromString(key),
+                grantSection.getString("rank"),
+                grantSection.getString("granter"),
+                UUID.fromString(grantSection.getString("granter-uuid")),
+                grantSection.getLong("granted"),
+                grantSection.getLong("expiration")
+            ));
+        }
+        return grants;
+    }
+}
@@ -0,0 +1,138 @@
+package com.standcore.storage;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import com.standcore.StandCore;
+import com.standcore.managers.SanctionsManager.Sanction;
+import com.standcore.managers.SanctionsManager.SanctionType;
+import com.standcore.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Legacy sanction storage, one YAML document per player under data/sanctions
+ */
+public class YamlSanctionStore implements SanctionStore {
+    private final StandCore plugin;
+    private final File directory;
+
+    public YamlSanctionStore(StandCore plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "data/sanctions");
+    }
+
+    @Override
+    public void saveSanction(String playerName, Sanction sanction) throws IOException {
+        saveSanctions(playerName, Collections.singletonList(sanction));
+        flush();
+    }
+
+    @Override
+    public void saveSanctions(String playerName, List<Sanction> sanctions) throws IOException {
+        File file = new File(directory, playerName + ".yml");
+        // Strict load, a history that cannot be parsed must not be overwritten with only the new records
+        FileConfiguration config = FileUtils.loadYaml(file);
+
+        for (Sanction sanction : sanctions) {
+            writeSanction(config, sanction);
+        }
+
+        FileUtils.saveAtomically(config, file);
+    }
+
+    @Override
+    public void flush() {
+        // Every save is synced before it replaces the file
+    }
+
+    @Override
+    public List<Sanction> getSanctionHistory(String playerName) {
+        File file = new File(directory, playerName + ".yml");
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+
+        List<Sanction> sanctions = readSanctions(YamlConfiguration.loadConfiguration(file));
+
+        // Sort by date (newest first)
+        sanctions.sort((s1, s2) -> Long.compare(s2.getTimestamp(), s1.getTimestamp()));
+        return sanctions;
+    }
+
+    @Override
+    public List<Sanction> getActiveSanctions(SanctionType type, long now) {
+        List<Sanction> active = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) return active;
+
+        for (File file : files) {
+            if (!file.getName().endsWith(".yml")) continue;
+
+            for (Sanction sanction : readSanctions(YamlConfiguration.loadConfiguration(file))) {
+                if (sanction.getType() != type) continue;
+                if (sanction.getExpiration() == -1 || sanction.getExpiration() > now) {
+                    active.add(sanction);
+                }
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release, every call opens its own file
+    }
+
+    /**
+     * Writes a sanction into a player's YAML document
+     * @param config The player's document
+     * @param sanction The sanction
+     */
+    static void writeSanction(FileConfiguration config, Sanction sanction) {
+        ConfigurationSection sanctionSection = config.createSection(
+            "sanctions." + sanction.getId().toString()
+        );
+        sanctionSection.set("type", sanction.getType().name());
+        sanctionSection.set("target", sanction.getTarget());
+        sanctionSection.set("staff", sanction.getStaff());
+        sanctionSection.set("staff-uuid", sanction.getStaffUUID().toString());
+        sanctionSection.set("reason", sanction.getReason());
+        sanctionSection.set("timestamp", sanction.getTimestamp());
+        sanctionSection.set("expiration", sanction.getExpiration());
+    }
+
+    /**
+     * Reads every sanction from a player's YAML document
+     * @param config The player's document
+     * @return List of sanctions in file order
+     */
+    static List<Sanction> readSanctions(FileConfiguration config) {
+        List<Sanction> sanctions = new ArrayList<>();
+
+        ConfigurationSection sanctionsSection = config.getConfigurationSection("sanctions");
+        if (sanctionsSection == null) return sanctions;
+
+        for (String key : sanctionsSection.getKeys(false)) {
+            ConfigurationSection sanctionSection = sanctionsSection.getConfigurationSection(key);
+            if (sanctionSection == null) continue;
+
+            sanctions.add(new Sanction(
+                UUID.fromString(key),
+                SanctionType.valueOf(sanctionSection.getString("type")),
+                sanctionSection.getString("target"),
+                sanctionSection.getString("staff"),
+                UUID.fromString(sanctionSection.getString("staff-uuid")),
+                sanctionSection.getString("reason"),
+                sanctionSection.getLong("timestamp"),
+                sanctionSection.getLong("expiration")
+            ));
+        }
+        return sanctions;
+    }
+}
@@ -0,0 +1,111 @@
+package com.standcore.util;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over UUIDs and long keys.
+ * A negative answer is always correct, a positive one may be a false positive.
+ * Bits are set atomically so adds may race with lookups from other threads.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashes;
+    private final int capacity;
+    private final AtomicInteger size;
+
+    /**
+     * Creates a filter sized for an expected number of keys
+     * @param capacity Expected number of keys
+     * @param falsePositiveRate Target false positive rate once full, between 0 and 1 exclusive
+     */
+    public BloomFilter(int capacity, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        capacity = Math.max(1, capacity);
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(optimalBits, Integer.MAX_VALUE - 63));
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) >>> 6);
+        this.capacity = capacity;
+        this.size = new AtomicInteger();
+    }
+
+    public void add(UUID uuid) {
+        add(mix(uuid.getMostSignificantBits()), mix(uuid.getLeastSignificantBits() ^ 0x9E3779B97F4A7C15L));
+    }
+
+    public void add(long key) {
+        long hash = mix(key);
+        add(hash, mix(hash));
+    }
+
+    public boolean mightContain(UUID uuid) {
+        return mightContain(mix(uuid.getMostSignificantBits()), mix(uuid.getLeastSignificantBits() ^ 0x9E3779B97F4A7C15L));
+    }
+
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        return mightContain(hash, mix(hash));
+    }
+
+    /**
+     * @return The number of keys added
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return The number of keys the filter was sized for
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The expected false positive rate at the current size
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * size.get() / bitCount), hashes);
+    }
+
+    // Double hashing, probe i is h1 + i * h2
+    private void add(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+        size.incrementAndGet();
+    }
+
+    private boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long hash) {
+        return (int) ((hash & Long.MAX_VALUE) % bitCount);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
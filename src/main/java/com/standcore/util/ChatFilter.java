@@ -0,0 +1,262 @@
+package com.standcore.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Banned terms compiled into an Aho-Corasick automaton, so a message is checked against
+ * every term in one pass over its characters. Messages and terms are normalized the same
+ * way: lowercased, leetspeak digits and symbols read as letters, punctuation skipped and
+ * runs of whitespace read as one space. "b.@.d" therefore matches the term "bad".
+ * Terms match whole words: messages are read with a space on either end and terms are
+ * compiled with one on either side, so "ass" does not match "class" or "a$$ign". A term
+ * starting or ending with * drops that boundary, "*ass" matches "badass".
+ * Immutable once built and safe to share between the chat threads.
+ */
+public final class ChatFilter {
+    public static final ChatFilter EMPTY = new ChatFilter(Collections.<String, Action>emptyMap());
+
+    private static final int ALPHABET = 27;
+    private static final int SPACE = 26;
+
+    /**
+     * What happens to a message containing a term, later constants are more severe
+     */
+    public enum Action {
+        CENSOR,
+        BLOCK,
+        WARN
+    }
+
+    private final int[] next;
+    private final int[] matchLength;
+    private final Action[] actions;
+    private final int terms;
+
+    /**
+     * Compiles a set of terms
+     * @param terms Terms to the action taken when they appear, * at either end to match inside words
+     */
+    public ChatFilter(Map<String, Action> terms) {
+        // Trie first, -1 marks a missing edge
+        int capacity = 1;
+        for (String term : terms.keySet()) {
+            capacity += term.length() + 2;
+        }
+        int[] edges = new int[capacity * ALPHABET];
+        Arrays.fill(edges, -1);
+        int[] depth = new int[capacity];
+        int[] length = new int[capacity];
+        Action[] action = new Action[capacity];
+        int nodes = 1;
+        int compiled = 0;
+
+        for (Map.Entry<String, Action> entry : terms.entrySet()) {
+            String term = entry.getKey().trim();
+            int[] path = new int[term.length() + 2];
+            int symbols = 0;
+            int letters = 0;
+            int last = SPACE;
+
+            // Spaces around a term are the word boundaries, a term without them matches inside words
+            if (!term.startsWith("*")) {
+                path[symbols++] = SPACE;
+            }
+            for (int i = 0; i < term.length(); i++) {
+                int symbol = symbol(term.charAt(i));
+                if (symbol < 0 || (symbol == SPACE && last == SPACE)) continue;
+                last = symbol;
+                path[symbols++] = symbol;
+                if (symbol != SPACE) letters++;
+            }
+            if (letters == 0) continue;
+            if (!term.endsWith("*") && last != SPACE) {
+                path[symbols++] = SPACE;
+            }
+
+            int node = 0;
+            for (int i = 0; i < symbols; i++) {
+                int child = edges[node * ALPHABET + path[i]];
+                if (child == -1) {
+                    child = nodes++;
+                    edges[node * ALPHABET + path[i]] = child;
+                    depth[child] = depth[node] + 1;
+                }
+                node = child;
+            }
+
+            length[node] = depth[node];
+            action[node] = max(action[node], entry.getValue());
+            compiled++;
+        }
+
+        // Breadth-first pass turns the trie into a full transition table following failure links,
+        // each node also inherits the longest match and most severe action of its failure node
+        int[] fail = new int[nodes];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            int child = edges[symbol];
+            if (child == -1) {
+                edges[symbol] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            if (length[node] == 0) {
+                length[node] = length[fail[node]];
+            }
+            action[node] = max(action[node], action[fail[node]]);
+
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int child = edges[node * ALPHABET + symbol];
+                if (child == -1) {
+                    edges[node * ALPHABET + symbol] = edges[fail[node] * ALPHABET + symbol];
+                } else {
+                    fail[child] = edges[fail[node] * ALPHABET + symbol];
+                    queue.add(child);
+                }
+            }
+        }
+
+        this.next = Arrays.copyOf(edges, nodes * ALPHABET);
+        this.matchLength = Arrays.copyOf(length, nodes);
+        this.actions = Arrays.copyOf(action, nodes);
+        this.terms = compiled;
+    }
+
+    /**
+     * Checks a message
+     * @param message The message
+     * @return The most severe action of the terms found and the message with them censored
+     */
+    public Result apply(String message) {
+        if (terms == 0) return new Result(null, message);
+
+        // Normalized first, with the index each symbol came from, -1 for the spaces between words
+        int[] symbols = new int[message.length() + 2];
+        int[] origin = new int[message.length() + 2];
+        symbols[0] = SPACE;
+        origin[0] = -1;
+        int count = 1;
+        int last = SPACE;
+        int punctuation = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '!' && i >= punctuation) {
+                punctuation = endOfExclamation(message, i);
+            }
+            int symbol = i < punctuation ? -1 : symbol(c);
+            if (symbol < 0 || (symbol == SPACE && last == SPACE)) continue;
+            last = symbol;
+
+            symbols[count] = symbol;
+            origin[count++] = symbol == SPACE ? -1 : i;
+        }
+        if (last != SPACE) {
+            symbols[count] = SPACE;
+            origin[count++] = -1;
+        }
+
+        char[] censored = null;
+        Action worst = null;
+        int state = 0;
+        for (int i = 0; i < count; i++) {
+            state = next[state * ALPHABET + symbols[i]];
+            int length = matchLength[state];
+            if (length > 0) {
+                worst = max(worst, actions[state]);
+                if (censored == null) {
+                    censored = message.toCharArray();
+                }
+                // The boundaries are not part of the word
+                int from = origin[i - length + 1] >= 0 ? i - length + 1 : i - length + 2;
+                int to = origin[i] >= 0 ? i : i - 1;
+                for (int j = origin[from]; j <= origin[to]; j++) {
+                    if (!Character.isWhitespace(censored[j])) {
+                        censored[j] = '*';
+                    }
+                }
+            }
+        }
+
+        return new Result(worst, censored == null ? message : new String(censored));
+    }
+
+    /**
+     * @return The number of terms compiled
+     */
+    public int size() {
+        return terms;
+    }
+
+    /**
+     * Finds where the ! at an index stops being read as an i. Only a ! ending a word is
+     * punctuation, so "sh!t" still reads as "shit" while "ass!" reads as "ass".
+     * @return The end of the word if only ! and punctuation follow, otherwise the index itself
+     */
+    private static int endOfExclamation(String message, int index) {
+        int end = index;
+        while (end < message.length() && !Character.isWhitespace(message.charAt(end))) {
+            char c = message.charAt(end);
+            if (c != '!' && symbol(c) >= 0) return index;
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Maps a character to its symbol
+     * @return 0-25 for letters and their leetspeak forms, SPACE for whitespace, -1 to skip it
+     */
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        switch (c) {
+            case '0': return 'o' - 'a';
+            case '1': case '!': case '|': return 'i' - 'a';
+            case '2': return 'z' - 'a';
+            case '3': return 'e' - 'a';
+            case '4': case '@': return 'a' - 'a';
+            case '5': case '$': return 's' - 'a';
+            case '6': case '9': return 'g' - 'a';
+            case '7': case '+': return 't' - 'a';
+            case '8': return 'b' - 'a';
+            default: return Character.isWhitespace(c) ? SPACE : -1;
+        }
+    }
+
+    private static Action max(Action a, Action b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.ordinal() >= b.ordinal() ? a : b;
+    }
+
+    /**
+     * The outcome of checking a message
+     */
+    public static final class Result {
+        private final Action action;
+        private final String message;
+
+        private Result(Action action, String message) {
+            this.action = action;
+            this.message = message;
+        }
+
+        /**
+         * @return The most severe action of the terms found, or null if there were none
+         */
+        public Action getAction() { return action; }
+
+        /**
+         * @return The message with every term found replaced by *
+         */
+        public String getMessage() { return message; }
+    }
+}
@@ -5,39 +5,97 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import com.standcore.StandCore;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ConfigUtils {
     private static StandCore plugin;
-    private static Map<String, FileConfiguration> configs;
+    private static volatile Loaded current;
     
     public static void init(StandCore instance) {
         plugin = instance;
-        configs = new HashMap<>();
         loadConfigs();
     }
     
     /**
-     * Loads all configuration files
+     * Loads all configuration files. Invalid settings fall back to their defaults with a warning.
      */
     public static void loadConfigs() {
-        // Load main config
-        configs.put("config", FileUtils.saveDefaultResource("config.yml"));
+        Map<String, FileConfiguration> loaded = readConfigs();
+        List<String> problems = new ArrayList<>();
+        Settings loadedSettings = Settings.load(loaded.get("config"), loaded.get("ranks"), problems);
+        for (String problem : problems) {
+            plugin.getLogger().warning("Invalid configuration: " + problem);
+        }
+        publish(loaded, loadedSettings);
+    }
+    
+    /**
+     * Reloads all configuration files, keeping the current ones if any setting is invalid
+     * @return The problems found, empty if the new configuration is in use
+     */
+    public static List<String> reloadConfigs() {
+        Map<String, FileConfiguration> loaded = readConfigs();
+        List<String> problems = new ArrayList<>();
+        Settings loadedSettings = Settings.load(loaded.get("config"), loaded.get("ranks"), problems);
+        if (problems.isEmpty()) {
+            publish(loaded, loadedSettings);
+        }
+        return problems;
+    }
+    
+    /**
+     * Reloads a single configuration file, keeping the current one if any setting is invalid
+     * @param name The name of the configuration (config, ranks, messages)
+     * @return The problems found, empty if the new file is in use
+     */
+    public static List<String> reloadConfig(String name) {
+        Map<String, FileConfiguration> loaded = new HashMap<>(current.configs);
+        loaded.put(name, FileUtils.saveDefaultResource(name + ".yml"));
+        List<String> problems = new ArrayList<>();
+        Settings loadedSettings = Settings.load(loaded.get("config"), loaded.get("ranks"), problems);
+        if (problems.isEmpty()) {
+            publish(loaded, loadedSettings);
+        }
+        return problems;
+    }
+    
+    private static Map<String, FileConfiguration> readConfigs() {
+        Map<String, FileConfiguration> loaded = new HashMap<>();
+        loaded.put("config", FileUtils.saveDefaultResource("config.yml"));
+        loaded.put("ranks", FileUtils.saveDefaultResource("ranks.yml"));
+        loaded.put("messages", FileUtils.saveDefaultResource("messages.yml"));
+        return loaded;
+    }
+    
+    /**
+     * Swaps in a full set of configs with a single write, readers on other threads see either
+     * the old or the new set and never a mix of the two
+     */
+    private static void publish(Map<String, FileConfiguration> loaded, Settings loadedSettings) {
+        FileConfiguration messagesConfig = loaded.get("messages");
+        String compiledPrefix = color(messagesConfig.getString("prefix", "&8[&bStandCore&8]"));
         
-        // Load ranks config
-        configs.put("ranks", FileUtils.saveDefaultResource("ranks.yml"));
+        // Compile every message once, rendering then only fills in the placeholders
+        Map<String, MessageTemplate> compiled = new HashMap<>();
+        for (String path : messagesConfig.getKeys(true)) {
+            if (messagesConfig.isString(path)) {
+                compiled.put(path, MessageTemplate.compile(messagesConfig.getString(path), compiledPrefix));
+            }
+        }
         
-        // Load messages config
-        configs.put("messages", FileUtils.saveDefaultResource("messages.yml"));
+        current = new Loaded(Collections.unmodifiableMap(loaded), loadedSettings, compiled, compiledPrefix);
     }
     
     /**
-     * Reloads all configuration files
+     * Gets the typed settings
+     * @return The settings, immutable and safe to read from any thread
      */
-    public static void reloadConfigs() {
-        configs.clear();
-        loadConfigs();
+    public static Settings getSettings() {
+        return current.settings;
     }
     
     /**
@@ -46,7 +104,7 @@ public class ConfigUtils {
      * @return The configuration file
      */
     public static FileConfiguration getConfig(String name) {
-        return configs.get(name);
+        return current.configs.get(name);
     }
     
     /**
@@ -54,7 +112,7 @@ public class ConfigUtils {
      * @return The formatted prefix
      */
     public static String getPrefix() {
-        return color(configs.get("messages").getString("prefix", "&8[&bStandCore&8]"));
+        return current.prefix;
     }
     
     /**
@@ -64,21 +122,12 @@ public class ConfigUtils {
      * @return The formatted message
      */
     public static String getMessage(String path, String... replacements) {
-        String message = configs.get("messages").getString(path);
+        MessageTemplate message = current.messages.get(path);
         if (message == null) {
             return "Message not found: " + path;
         }
         
-        message = message.replace("%prefix%", getPrefix());
-        
-        // Apply replacements
-        for (int i = 0; i < replacements.length; i += 2) {
-            if (i + 1 < replacements.length) {
-                message = message.replace("%" + replacements[i] + "%", replacements[i + 1]);
-            }
-        }
-        
-        return color(message);
+        return message.render(replacements);
     }
     
     /**
@@ -88,7 +137,7 @@ public class ConfigUtils {
      * @return The configuration section or null if not found
      */
     public static ConfigurationSection getSection(String config, String path) {
-        return configs.get(config).getConfigurationSection(path);
+        return current.configs.get(config).getConfigurationSection(path);
     }
     
     /**
@@ -98,7 +147,7 @@ public class ConfigUtils {
      * @return true if the section exists
      */
     public static boolean hasSection(String config, String path) {
-        return configs.get(config).isConfigurationSection(path);
+        return current.configs.get(config).isConfigurationSection(path);
     }
     
     /**
@@ -109,7 +158,7 @@ public class ConfigUtils {
      * @return The string value
      */
     public static String getString(String config, String path, String def) {
-        return configs.get(config).getString(path, def);
+        return current.configs.get(config).getString(path, def);
     }
     
     /**
@@ -120,9 +169,20 @@ public class ConfigUtils {
      * @return The integer value
      */
     public static int getInt(String config, String path, int def) {
-        return configs.get(config).getInt(path, def);
+        return current.configs.get(config).getInt(path, def);
     }
     
+    /**
+     * Gets a double from a configuration
+     * @param config The configuration name
+     * @param path The path to the double
+     * @param def The default value
+     * @return The double value
+     */
+    public static double getDouble(String config, String path, double def) {
+        return current.configs.get(config).getDouble(path, def);
+    }
+
     /**
      * Gets a boolean from a configuration
      * @param config The configuration name
@@ -131,7 +191,7 @@ public class ConfigUtils {
      * @return The boolean value
      */
     public static boolean getBoolean(String config, String path, boolean def) {
-        return configs.get(config).getBoolean(path, def);
+        return current.configs.get(config).getBoolean(path, def);
     }
     
     /**
@@ -211,4 +271,22 @@ public class ConfigUtils {
             return seconds + "s";
         }
     }
+    
+    /**
+     * Everything read from the config files, published as one unit
+     */
+    private static final class Loaded {
+        private final Map<String, FileConfiguration> configs;
+        private final Settings settings;
+        private final Map<String, MessageTemplate> messages;
+        private final String prefix;
+        
+        private Loaded(Map<String, FileConfiguration> configs, Settings settings,
+                       Map<String, MessageTemplate> messages, String prefix) {
+            this.configs = configs;
+            this.settings = settings;
+            this.messages = messages;
+            this.prefix = prefix;
+        }
+    }
 }
@@ -0,0 +1,123 @@
+package com.standcore.util;
+
+import com.standcore.StandCore;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches the plugin folder and runs a callback on the main thread when a config file
+ * changes. Editors often write a file several times in a row, so a callback only runs
+ * once the file has been quiet for the debounce delay.
+ */
+public class ConfigWatcher {
+    private final StandCore plugin;
+    private final long debounceMillis;
+    private final Map<String, Runnable> callbacks;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param plugin The plugin
+     * @param debounceMillis How long a file must be quiet before its callback runs
+     */
+    public ConfigWatcher(StandCore plugin, long debounceMillis) {
+        this.plugin = plugin;
+        this.debounceMillis = Math.max(50, debounceMillis);
+        this.callbacks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Runs a callback whenever a file in the plugin folder changes
+     * @param fileName The file name, e.g. ranks.yml
+     * @param callback The callback, run on the main thread
+     */
+    public void watch(String fileName, Runnable callback) {
+        callbacks.put(fileName, callback);
+    }
+
+    /**
+     * Starts watching on a background thread
+     */
+    public void start() {
+        try {
+            watchService = plugin.getDataFolder().toPath().getFileSystem().newWatchService();
+            plugin.getDataFolder().toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to watch the plugin folder, config files will not reload on change", e);
+            return;
+        }
+
+        thread = new Thread(this::run, "StandCore-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching
+     */
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to close the config watcher", e);
+            }
+            watchService = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        WatchService service = watchService;
+        Map<String, Long> changed = new HashMap<>();
+
+        try {
+            while (true) {
+                WatchKey key = changed.isEmpty() ? service.take() : service.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                long now = System.currentTimeMillis();
+
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object context = event.context();
+                        if (!(context instanceof Path)) continue;
+
+                        String fileName = ((Path) context).getFileName().toString();
+                        if (callbacks.containsKey(fileName)) {
+                            changed.put(fileName, now);
+                        }
+                    }
+                    key.reset();
+                }
+
+                Iterator<Map.Entry<String, Long>> it = changed.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Long> entry = it.next();
+                    if (now - entry.getValue() >= debounceMillis) {
+                        it.remove();
+                        if (plugin.isEnabled()) {
+                            plugin.getServer().getScheduler().runTask(plugin, callbacks.get(entry.getKey()));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.standcore.util;
+
+import org.bukkit.scheduler.BukkitTask;
+import com.standcore.StandCore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Runs actions on the main thread at the tick their deadline passes.
+ * Deadlines sit in a min-heap, so scheduling is O(log n) and each tick only peeks at
+ * the earliest one. Entries are keyed by sanction or grant id; cancelling marks the
+ * entry and it is dropped when it reaches the top of the heap, or in one sweep once
+ * cancelled entries outnumber live ones.
+ */
+public class ExpiryScheduler {
+    private final StandCore plugin;
+    private final PriorityQueue<Entry> queue;
+    private final Map<UUID, Entry> entries;
+    private int cancelled;
+    private BukkitTask task;
+
+    public ExpiryScheduler(StandCore plugin) {
+        this.plugin = plugin;
+        this.queue = new PriorityQueue<>((a, b) -> Long.compare(a.deadline, b.deadline));
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Starts checking deadlines every tick
+     */
+    public void start() {
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stops checking deadlines, pending entries are kept
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Schedules an action, replacing any pending one with the same key. Safe to call from any thread.
+     * @param key The id of the sanction or grant that expires
+     * @param deadline When to run the action, in epoch milliseconds
+     * @param action The action, run on the main thread
+     */
+    public synchronized void schedule(UUID key, long deadline, Runnable action) {
+        Entry entry = new Entry(key, deadline, action);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            markCancelled(previous);
+        }
+        queue.add(entry);
+    }
+
+    /**
+     * Cancels a pending action
+     * @param key The key it was scheduled under
+     */
+    public synchronized void cancel(UUID key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            markCancelled(entry);
+        }
+    }
+
+    /**
+     * @return The number of pending actions
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void tick() {
+        List<Entry> due = poll(System.currentTimeMillis());
+        for (Entry entry : due) {
+            try {
+                entry.action.run();
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to run expiry for " + entry.key, e);
+            }
+        }
+    }
+
+    /**
+     * Takes every entry whose deadline has passed. Actions run after the lock is released
+     * so they can schedule again.
+     */
+    private synchronized List<Entry> poll(long now) {
+        Entry head = queue.peek();
+        if (head == null || head.deadline > now) {
+            return new ArrayList<>(0);
+        }
+
+        List<Entry> due = new ArrayList<>();
+        while (head != null && head.deadline <= now) {
+            queue.poll();
+            if (head.cancelled) {
+                cancelled--;
+            } else {
+                entries.remove(head.key);
+                due.add(head);
+            }
+            head = queue.peek();
+        }
+        return due;
+    }
+
+    private void markCancelled(Entry entry) {
+        entry.cancelled = true;
+        if (++cancelled > 1024 && cancelled > entries.size()) {
+            queue.removeIf(e -> e.cancelled);
+            cancelled = 0;
+        }
+    }
+
+    private static class Entry {
+        private final UUID key;
+        private final long deadline;
+        private final Runnable action;
+        private boolean cancelled;
+
+        private Entry(UUID key, long deadline, Runnable action) {
+            this.key = key;
+            this.deadline = deadline;
+            this.action = action;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.standcore.util;
 
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import com.standcore.StandCore;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Level;
 
 public class FileUtils {
@@ -103,6 +108,49 @@ public class FileUtils {
         return YamlConfiguration.loadConfiguration(file);
     }
     
+    /**
+     * Forces a file's contents to disk
+     * @param file The file to sync
+     * @throws IOException if the file could not be synced
+     */
+    public static void sync(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+    
+    /**
+     * Loads a YAML file, failing instead of returning an empty configuration when it cannot be parsed
+     * @param file The file, which may not exist yet
+     * @return The configuration, empty if the file does not exist
+     * @throws IOException if the file could not be read or parsed
+     */
+    public static YamlConfiguration loadYaml(File file) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        if (!file.exists()) return config;
+        try {
+            config.load(file);
+        } catch (InvalidConfigurationException e) {
+            throw new IOException("Could not parse " + file.getName(), e);
+        }
+        return config;
+    }
+    
+    /**
+     * Saves a YAML configuration to a synced temporary file and renames it over the target,
+     * so readers see either the old or the new file and never a partly written one
+     * @param config The configuration to save
+     * @param file The target file
+     * @throws IOException if the file could not be written
+     */
+    public static void saveAtomically(FileConfiguration config, File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(temp.toPath(), config.saveToString().getBytes(StandardCharsets.UTF_8));
+        sync(temp);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
     /**
      * Checks if a file exists
      * @param path The path relative to plugin data folder
@@ -0,0 +1,135 @@
+package com.standcore.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of per-player history lists.
+ * Entries are evicted least recently used first once either the entry count or the
+ * total number of cached records (the weight) goes over its limit.
+ * @param <K> The player key
+ * @param <V> The history record
+ */
+public class HistoryCache<K, V> {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<K, List<V>> entries;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private long weight;
+    private long generation;
+
+    public HistoryCache(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * Gets a player's history, loading it on a miss
+     * @param key The player
+     * @param loader Loads the history from storage
+     * @return The history (read-only)
+     */
+    public List<V> get(K key, Function<K, List<V>> loader) {
+        long started;
+        synchronized (this) {
+            List<V> cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            started = generation;
+        }
+
+        misses.incrementAndGet();
+        List<V> loaded = Collections.unmodifiableList(new ArrayList<>(loader.apply(key)));
+
+        synchronized (this) {
+            // Something was invalidated while loading, this result may already be stale
+            if (started == generation) {
+                put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops a player's cached history, call after saving to it
+     * @param key The player
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        List<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.size();
+        }
+    }
+
+    /**
+     * Drops every cached history
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        weight = 0;
+    }
+
+    private void put(K key, List<V> value) {
+        // Never cache a single history that could not fit
+        if (value.size() > maxWeight) return;
+
+        List<V> previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= previous.size();
+        }
+        weight += value.size();
+
+        Iterator<Map.Entry<K, List<V>>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && iterator.hasNext()) {
+            Map.Entry<K, List<V>> eldest = iterator.next();
+            weight -= eldest.getValue().size();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return The fraction of lookups served from the cache
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
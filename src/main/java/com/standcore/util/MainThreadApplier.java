@@ -0,0 +1,113 @@
+package com.standcore.util;
+
+import org.bukkit.scheduler.BukkitTask;
+import com.standcore.StandCore;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Collects permission and team changes from any thread and applies them on the main
+ * thread, as many per tick as fit in the time budget. Changes are keyed by player, a
+ * newer change for a player still waiting replaces the older one in its place in line,
+ * so only changes that re-apply a player's state as it is when they run belong here.
+ */
+public class MainThreadApplier {
+    private final StandCore plugin;
+    private final Queue<UUID> order;
+    private final Map<UUID, Runnable> pending;
+    private final AtomicLong applied;
+    private final AtomicLong deferredTicks;
+    private BukkitTask task;
+
+    public MainThreadApplier(StandCore plugin) {
+        this.plugin = plugin;
+        this.order = new ConcurrentLinkedQueue<>();
+        this.pending = new ConcurrentHashMap<>();
+        this.applied = new AtomicLong();
+        this.deferredTicks = new AtomicLong();
+    }
+
+    /**
+     * Starts draining the queue every tick
+     */
+    public void start() {
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+    }
+
+    /**
+     * Stops draining the queue, pending changes are dropped
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        pending.clear();
+        order.clear();
+    }
+
+    /**
+     * Queues a change for a player. Safe to call from any thread.
+     * @param uuid The player's UUID
+     * @param change The change, run on the main thread. It may be replaced and never run,
+     *               so it must not depend on state captured when it was queued.
+     */
+    public void submit(UUID uuid, Runnable change) {
+        if (pending.put(uuid, change) == null) {
+            order.add(uuid);
+        }
+    }
+
+    /**
+     * @return The number of players with a change waiting
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * @return The number of changes applied
+     */
+    public long getApplied() {
+        return applied.get();
+    }
+
+    /**
+     * @return The number of ticks that ran out of budget with changes left over
+     */
+    public long getDeferredTicks() {
+        return deferredTicks.get();
+    }
+
+    private void drain() {
+        if (order.isEmpty()) return;
+
+        long deadline = System.nanoTime() + ConfigUtils.getSettings().getMainThread().getBudgetNanos();
+
+        // At least one change runs every tick so a slow one cannot stall the queue
+        do {
+            UUID uuid = order.poll();
+            if (uuid == null) return;
+
+            Runnable change = pending.remove(uuid);
+            if (change == null) continue;
+
+            try {
+                change.run();
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to apply change for " + uuid, e);
+            }
+            applied.incrementAndGet();
+        } while (System.nanoTime() < deadline);
+
+        if (!order.isEmpty()) {
+            deferredTicks.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.standcore.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message from messages.yml compiled into literal segments and %placeholder% slots,
+ * with color codes already translated. Rendering is a single pass into a builder
+ * reused per thread.
+ */
+public final class MessageTemplate {
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final String[] literals;
+    private final String[] keys;
+
+    private MessageTemplate(String[] literals, String[] keys) {
+        this.literals = literals;
+        this.keys = keys;
+    }
+
+    /**
+     * Compiles a message
+     * @param message The raw message with & color codes
+     * @param prefix The colored plugin prefix, filled in for %prefix% right away
+     * @return The template
+     */
+    public static MessageTemplate compile(String message, String prefix) {
+        String colored = ConfigUtils.color(message);
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < colored.length()) {
+            char c = colored.charAt(i);
+            int end = c == '%' ? findPlaceholderEnd(colored, i + 1) : -1;
+            if (end == -1) {
+                // Not a placeholder, e.g. the % in "50%"
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            String key = colored.substring(i + 1, end);
+            if (key.equals("prefix")) {
+                literal.append(prefix);
+            } else {
+                literals.add(literal.toString());
+                keys.add(key);
+                literal.setLength(0);
+            }
+            i = end + 1;
+        }
+        literals.add(literal.toString());
+
+        return new MessageTemplate(literals.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    /**
+     * Renders the message
+     * @param replacements The replacements to make (key=value pairs), values may contain & color codes
+     * @return The message, placeholders without a replacement are left as they are
+     */
+    public String render(String... replacements) {
+        if (keys.length == 0) {
+            return literals[0];
+        }
+
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        for (int slot = 0; slot < keys.length; slot++) {
+            builder.append(literals[slot]);
+
+            String value = find(keys[slot], replacements);
+            if (value == null) {
+                builder.append('%').append(keys[slot]).append('%');
+            } else if (value.indexOf('&') >= 0) {
+                builder.append(ConfigUtils.color(value));
+            } else {
+                builder.append(value);
+            }
+        }
+        builder.append(literals[keys.length]);
+        return builder.toString();
+    }
+
+    private static String find(String key, String[] replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (key.equals(replacements[i])) {
+                return replacements[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the % closing a placeholder name made of letters, digits, - and _
+     * @return Its index or -1 if the text at start is not a placeholder
+     */
+    private static int findPlaceholderEnd(String text, int start) {
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%') {
+                return i > start ? i : -1;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '-' && c != '_') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
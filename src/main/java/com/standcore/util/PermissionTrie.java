@@ -0,0 +1,109 @@
+package com.standcore.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A rank's permissions compiled into a trie over the dot-separated segments of each node.
+ * Supports "*" and "node.*" wildcards, which match everything below them but not the node
+ * itself, and "-node" negations. The most specific match wins. Answers are memoised, so a
+ * repeated check is a single hash lookup. Immutable once built and safe to share.
+ */
+public class PermissionTrie {
+    private static final int MAX_CACHED = 4096;
+    private static final byte UNSET = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private final Node root;
+    private final Map<String, Byte> cache;
+
+    /**
+     * Compiles a set of permission values
+     * @param permissions Permission nodes to values, "-node" entries are read as node = false
+     */
+    public PermissionTrie(Map<String, Boolean> permissions) {
+        this.root = new Node();
+        this.cache = new ConcurrentHashMap<>();
+
+        for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+            String permission = entry.getKey().toLowerCase(Locale.ROOT);
+            boolean value = entry.getValue();
+            if (permission.startsWith("-")) {
+                permission = permission.substring(1);
+                value = !value;
+            }
+            insert(permission, value);
+        }
+    }
+
+    /**
+     * Resolves a permission
+     * @param permission The permission node
+     * @return The value or null if nothing in the rank matches
+     */
+    public Boolean get(String permission) {
+        Byte cached = cache.get(permission);
+        if (cached == null) {
+            Boolean value = lookup(permission.toLowerCase(Locale.ROOT));
+            cached = value == null ? UNSET : value ? TRUE : FALSE;
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+            cache.put(permission, cached);
+        }
+        return cached == UNSET ? null : cached == TRUE;
+    }
+
+    private Boolean lookup(String permission) {
+        Node node = root;
+        Boolean wildcard = null;
+        int start = 0;
+        while (true) {
+            if (node.wildcard != null) {
+                wildcard = node.wildcard;
+            }
+
+            int end = permission.indexOf('.', start);
+            String segment = end == -1 ? permission.substring(start) : permission.substring(start, end);
+            node = node.children.get(segment);
+            if (node == null) {
+                return wildcard;
+            }
+            if (end == -1) {
+                return node.value != null ? node.value : wildcard;
+            }
+            start = end + 1;
+        }
+    }
+
+    private void insert(String permission, boolean value) {
+        if (permission.equals("*")) {
+            root.wildcard = value;
+            return;
+        }
+
+        boolean isWildcard = permission.endsWith(".*");
+        if (isWildcard) {
+            permission = permission.substring(0, permission.length() - 2);
+        }
+
+        Node node = root;
+        for (String segment : permission.split("\\.")) {
+            node = node.children.computeIfAbsent(segment, k -> new Node());
+        }
+        if (isWildcard) {
+            node.wildcard = value;
+        } else {
+            node.value = value;
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>(4);
+        private Boolean value;
+        private Boolean wildcard;
+    }
+}
@@ -0,0 +1,119 @@
+package com.standcore.util;
+
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissibleBase;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * A Permissible that answers from the player's rank trie first and falls back to the
+ * regular attachments and defaults for anything the rank does not set. Swapping the
+ * rank is a single field write instead of one attachment change per node.
+ */
+public class RankPermissible extends PermissibleBase {
+    private volatile PermissionTrie trie;
+
+    public RankPermissible(Player player) {
+        super(player);
+    }
+
+    public PermissionTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * Sets the rank permissions to answer from
+     * @param trie The rank's trie, or null to only use attachments
+     */
+    public void setTrie(PermissionTrie trie) {
+        this.trie = trie;
+    }
+
+    @Override
+    public boolean isPermissionSet(String name) {
+        PermissionTrie current = trie;
+        return (current != null && current.get(name) != null) || super.isPermissionSet(name);
+    }
+
+    @Override
+    public boolean isPermissionSet(Permission perm) {
+        return isPermissionSet(perm.getName());
+    }
+
+    @Override
+    public boolean hasPermission(String name) {
+        PermissionTrie current = trie;
+        if (current != null) {
+            Boolean value = current.get(name);
+            if (value != null) return value;
+        }
+        return super.hasPermission(name);
+    }
+
+    @Override
+    public boolean hasPermission(Permission perm) {
+        PermissionTrie current = trie;
+        if (current != null) {
+            Boolean value = current.get(perm.getName());
+            if (value != null) return value;
+        }
+        return super.hasPermission(perm);
+    }
+
+    /**
+     * Replaces a player's Permissible, moving its attachments over to the new one
+     * @param player The player
+     * @param permissible The new Permissible
+     * @return The Permissible that was replaced
+     * @throws ReflectiveOperationException If the server keeps it somewhere else
+     */
+    public static PermissibleBase inject(Player player, PermissibleBase permissible) throws ReflectiveOperationException {
+        Field field = findField(player.getClass());
+        field.setAccessible(true);
+        PermissibleBase previous = (PermissibleBase) field.get(player);
+        if (previous != null && previous != permissible) {
+            moveAttachments(previous, permissible);
+            previous.clearPermissions();
+        }
+        field.set(player, permissible);
+        permissible.recalculatePermissions();
+        return previous;
+    }
+
+    /**
+     * Moves every attachment between two Permissibles. The attachments themselves are kept,
+     * so the plugins holding them can still change or remove them afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    private static void moveAttachments(PermissibleBase from, PermissibleBase to) throws ReflectiveOperationException {
+        Field list = PermissibleBase.class.getDeclaredField("attachments");
+        list.setAccessible(true);
+        Field owner = PermissionAttachment.class.getDeclaredField("permissible");
+        owner.setAccessible(true);
+
+        List<PermissionAttachment> source = (List<PermissionAttachment>) list.get(from);
+        List<PermissionAttachment> target = (List<PermissionAttachment>) list.get(to);
+        for (PermissionAttachment attachment : source) {
+            owner.set(attachment, to);
+            target.add(attachment);
+        }
+        source.clear();
+    }
+
+    private static Field findField(Class<?> type) throws NoSuchFieldException {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField("perm");
+                if (PermissibleBase.class.isAssignableFrom(field.getType())) {
+                    return field;
+                }
+            } catch (NoSuchFieldException ignored) {
+                // Keep looking up the hierarchy
+            }
+        }
+        throw new NoSuchFieldException("No Permissible field on " + type.getName());
+    }
+}
@@ -0,0 +1,468 @@
+package com.standcore.util;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The settings read on hot paths, typed and immutable. A new instance is built on every
+ * load and published in one write, so listeners on any thread read plain fields instead
+ * of walking the config by path. Invalid values fall back to their defaults and are
+ * reported as problems.
+ */
+public final class Settings {
+    private final String dateFormat;
+    private final String defaultRank;
+    private final StaffMode staffMode;
+    private final Sanctions sanctions;
+    private final Grants grants;
+    private final Gui gui;
+    private final Chat chat;
+    private final Cache cache;
+    private final MainThread mainThread;
+    private final Teams teams;
+    private final Alts alts;
+    private final Sessions sessions;
+    private final Permissions permissions;
+    private final AutoReload autoReload;
+
+    private Settings(FileConfiguration config, FileConfiguration ranks, List<String> problems) {
+        if (config.getKeys(false).isEmpty()) {
+            problems.add("config.yml is empty or could not be parsed");
+        }
+        if (!ranks.isConfigurationSection("ranks")) {
+            problems.add("ranks.yml has no ranks section or could not be parsed");
+        }
+
+        String format = config.getString("settings.date-format", "dd/MM/yyyy HH:mm:ss");
+        try {
+            new SimpleDateFormat(format);
+        } catch (IllegalArgumentException e) {
+            problems.add("settings.date-format is not a valid date format: " + format);
+            format = "dd/MM/yyyy HH:mm:ss";
+        }
+        this.dateFormat = format;
+
+        this.defaultRank = ranks.getString("settings.default-rank", "default").toLowerCase();
+        if (ranks.isConfigurationSection("ranks") && !hasRank(ranks, defaultRank)) {
+            problems.add("settings.default-rank in ranks.yml is not a rank: " + defaultRank);
+        }
+
+        this.staffMode = new StaffMode(config);
+        this.sanctions = new Sanctions(config, problems);
+        this.grants = new Grants(config);
+        this.gui = new Gui(config, problems);
+        this.chat = new Chat(config, ranks, problems);
+        this.cache = new Cache(config, problems);
+        this.mainThread = new MainThread(config);
+        this.teams = new Teams(config);
+        this.alts = new Alts(config, problems);
+        this.sessions = new Sessions(config);
+        this.permissions = new Permissions(config);
+        this.autoReload = new AutoReload(config);
+    }
+
+    /**
+     * Builds the settings from loaded config files
+     * @param config config.yml
+     * @param ranks ranks.yml
+     * @param problems Receives a description of every invalid value
+     * @return The settings
+     */
+    public static Settings load(FileConfiguration config, FileConfiguration ranks, List<String> problems) {
+        return new Settings(config, ranks, problems);
+    }
+
+    private static boolean hasRank(FileConfiguration ranks, String rankId) {
+        for (String key : ranks.getConfigurationSection("ranks").getKeys(false)) {
+            if (key.equalsIgnoreCase(rankId)) return true;
+        }
+        return false;
+    }
+
+    private static Material material(FileConfiguration config, String path, Material def, List<String> problems) {
+        String name = config.getString(path, def.name());
+        Material material = Material.matchMaterial(name);
+        if (material == null) {
+            problems.add(path + " is not a material: " + name);
+            return def;
+        }
+        return material;
+    }
+
+    public String getDateFormat() { return dateFormat; }
+    public String getDefaultRank() { return defaultRank; }
+    public StaffMode getStaffMode() { return staffMode; }
+    public Sanctions getSanctions() { return sanctions; }
+    public Grants getGrants() { return grants; }
+    public Gui getGui() { return gui; }
+    public Chat getChat() { return chat; }
+    public Cache getCache() { return cache; }
+    public MainThread getMainThread() { return mainThread; }
+    public Teams getTeams() { return teams; }
+    public Alts getAlts() { return alts; }
+    public Sessions getSessions() { return sessions; }
+    public Permissions getPermissions() { return permissions; }
+    public AutoReload getAutoReload() { return autoReload; }
+
+    /**
+     * settings.staff-mode
+     */
+    public static final class StaffMode {
+        private final boolean enabled;
+        private final boolean joinWithStaffMode;
+        private final boolean joinWithVanish;
+        private final boolean showFrozenMessage;
+        private final boolean storeLastLocation;
+        private final boolean showVanishedTag;
+
+        private StaffMode(FileConfiguration config) {
+            this.enabled = config.getBoolean("settings.staff-mode.enabled", true);
+            this.joinWithStaffMode = config.getBoolean("settings.staff-mode.join-with-staff-mode", false);
+            this.joinWithVanish = config.getBoolean("settings.staff-mode.join-with-vanish", false);
+            this.showFrozenMessage = config.getBoolean("settings.staff-mode.show-frozen-message", true);
+            this.storeLastLocation = config.getBoolean("settings.staff-mode.store-last-location", true);
+            this.showVanishedTag = config.getBoolean("settings.staff-mode.show-vanished-tag", true);
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public boolean isJoinWithStaffMode() { return joinWithStaffMode; }
+        public boolean isJoinWithVanish() { return joinWithVanish; }
+        public boolean isShowFrozenMessage() { return showFrozenMessage; }
+        public boolean isStoreLastLocation() { return storeLastLocation; }
+        public boolean isShowVanishedTag() { return showVanishedTag; }
+    }
+
+    /**
+     * settings.sanctions
+     */
+    public static final class Sanctions {
+        private final boolean broadcastBans;
+        private final boolean broadcastMutes;
+        private final boolean broadcastKicks;
+        private final boolean broadcastWarns;
+        private final boolean broadcastUnbans;
+        private final String unbanBroadcastPermission;
+        private final boolean autoPunishEnabled;
+        private final int warnsForMute;
+        private final int warnsForKick;
+        private final int warnsForBan;
+        private final long autoMuteDuration;
+
+        private Sanctions(FileConfiguration config, List<String> problems) {
+            this.broadcastBans = config.getBoolean("settings.sanctions.broadcast-bans", true);
+            this.broadcastMutes = config.getBoolean("settings.sanctions.broadcast-mutes", true);
+            this.broadcastKicks = config.getBoolean("settings.sanctions.broadcast-kicks", true);
+            this.broadcastWarns = config.getBoolean("settings.sanctions.broadcast-warns", false);
+            this.broadcastUnbans = config.getBoolean("settings.sanctions.broadcast-unbans", true);
+            this.unbanBroadcastPermission = config.getString("settings.sanctions.unban-broadcast-permission", "");
+            this.autoPunishEnabled = config.getBoolean("settings.sanctions.auto-punish.enabled", false);
+            this.warnsForMute = config.getInt("settings.sanctions.auto-punish.warn-count-for-mute", -1);
+            this.warnsForKick = config.getInt("settings.sanctions.auto-punish.warn-count-for-kick", -1);
+            this.warnsForBan = config.getInt("settings.sanctions.auto-punish.warn-count-for-ban", -1);
+
+            String duration = config.getString("settings.sanctions.auto-punish.mute-duration", "1h");
+            long parsed;
+            try {
+                parsed = ConfigUtils.parseDuration(duration);
+            } catch (IllegalArgumentException e) {
+                problems.add("settings.sanctions.auto-punish.mute-duration is not a duration: " + duration);
+                parsed = 60 * 60 * 1000L;
+            }
+            this.autoMuteDuration = parsed;
+        }
+
+        public boolean isBroadcastBans() { return broadcastBans; }
+        public boolean isBroadcastMutes() { return broadcastMutes; }
+        public boolean isBroadcastKicks() { return broadcastKicks; }
+        public boolean isBroadcastWarns() { return broadcastWarns; }
+        public boolean isBroadcastUnbans() { return broadcastUnbans; }
+
+        /**
+         * @return The permission needed to see unban broadcasts, empty if everyone sees them
+         */
+        public String getUnbanBroadcastPermission() { return unbanBroadcastPermission; }
+        public boolean isAutoPunishEnabled() { return autoPunishEnabled; }
+        public int getWarnsForMute() { return warnsForMute; }
+        public int getWarnsForKick() { return warnsForKick; }
+        public int getWarnsForBan() { return warnsForBan; }
+
+        /**
+         * @return The length of automatic mutes in milliseconds, -1 if permanent
+         */
+        public long getAutoMuteDuration() { return autoMuteDuration; }
+    }
+
+    /**
+     * settings.grants
+     */
+    public static final class Grants {
+        private final List<String> defaultDurations;
+        private final boolean customDurationAllowed;
+        private final String menuTitle;
+        private final String durationTitle;
+        private final String confirmTitle;
+
+        private Grants(FileConfiguration config) {
+            this.defaultDurations = Collections.unmodifiableList(
+                new ArrayList<>(config.getStringList("settings.grants.default-durations")));
+            this.customDurationAllowed = config.getBoolean("settings.grants.custom-duration-allowed", true);
+            this.menuTitle = config.getString("settings.grants.gui.title", "&8Grant Menu");
+            this.durationTitle = config.getString("settings.grants.gui.duration-title", "&8Select Duration");
+            this.confirmTitle = config.getString("settings.grants.gui.confirm-title", "&8Confirm Grant");
+        }
+
+        public List<String> getDefaultDurations() { return defaultDurations; }
+        public boolean isCustomDurationAllowed() { return customDurationAllowed; }
+        public String getMenuTitle() { return menuTitle; }
+        public String getDurationTitle() { return durationTitle; }
+        public String getConfirmTitle() { return confirmTitle; }
+    }
+
+    /**
+     * gui
+     */
+    public static final class Gui {
+        private final boolean fillEmptySlots;
+        private final Material fillMaterial;
+        private final Material backButtonMaterial;
+        private final String backButtonName;
+
+        private Gui(FileConfiguration config, List<String> problems) {
+            this.fillEmptySlots = config.getBoolean("gui.fill-empty-slots", true);
+            this.fillMaterial = material(config, "gui.fill-material", Material.BLACK_STAINED_GLASS_PANE, problems);
+            this.backButtonMaterial = material(config, "gui.back-button.material", Material.ARROW, problems);
+            this.backButtonName = ConfigUtils.color(config.getString("gui.back-button.name", "&cGo Back"));
+        }
+
+        public boolean isFillEmptySlots() { return fillEmptySlots; }
+        public Material getFillMaterial() { return fillMaterial; }
+        public Material getBackButtonMaterial() { return backButtonMaterial; }
+
+        /**
+         * @return The back button's name, colored
+         */
+        public String getBackButtonName() { return backButtonName; }
+    }
+
+    /**
+     * settings.main-thread
+     */
+    public static final class MainThread {
+        private final long budgetNanos;
+
+        private MainThread(FileConfiguration config) {
+            this.budgetNanos = Math.max(1, config.getInt("settings.main-thread.budget-ms", 2)) * 1_000_000L;
+        }
+
+        /**
+         * @return How long queued changes may run each tick, in nanoseconds
+         */
+        public long getBudgetNanos() { return budgetNanos; }
+    }
+
+    /**
+     * settings.teams
+     */
+    public static final class Teams {
+        private final int maxUpdatesPerTick;
+
+        private Teams(FileConfiguration config) {
+            this.maxUpdatesPerTick = Math.max(1, config.getInt("settings.teams.max-updates-per-tick", 200));
+        }
+
+        public int getMaxUpdatesPerTick() { return maxUpdatesPerTick; }
+    }
+
+    /**
+     * settings.alts
+     */
+    public static final class Alts {
+        private final int windowDays;
+        private final int retentionDays;
+        private final boolean clusterBan;
+        private final int maxLinkedBans;
+
+        private Alts(FileConfiguration config, List<String> problems) {
+            this.windowDays = Math.max(1, config.getInt("settings.alts.window-days", 30));
+            this.retentionDays = Math.max(1, config.getInt("settings.alts.retention-days", 180));
+            String action = config.getString("settings.alts.cluster-action", "FLAG");
+            if (!action.equalsIgnoreCase("FLAG") && !action.equalsIgnoreCase("BAN")) {
+                problems.add("settings.alts.cluster-action must be FLAG or BAN: " + action);
+            }
+            this.clusterBan = action.equalsIgnoreCase("BAN");
+            this.maxLinkedBans = Math.max(0, config.getInt("settings.alts.max-linked-bans", 3));
+        }
+
+        public int getWindowDays() { return windowDays; }
+        public int getRetentionDays() { return retentionDays; }
+
+        /**
+         * @return true if banning a player also bans their alts
+         */
+        public boolean isClusterBan() { return clusterBan; }
+        public int getMaxLinkedBans() { return maxLinkedBans; }
+    }
+
+    /**
+     * settings.sessions
+     */
+    public static final class Sessions {
+        private final long gracePeriodTicks;
+
+        private Sessions(FileConfiguration config) {
+            this.gracePeriodTicks = Math.max(0, config.getInt("settings.sessions.grace-period", 60)) * 20L;
+        }
+
+        public long getGracePeriodTicks() { return gracePeriodTicks; }
+    }
+
+    /**
+     * settings.permissions
+     */
+    public static final class Permissions {
+        private final boolean injectPermissible;
+
+        private Permissions(FileConfiguration config) {
+            this.injectPermissible = config.getBoolean("settings.permissions.inject-permissible", false);
+        }
+
+        public boolean isInjectPermissible() { return injectPermissible; }
+    }
+
+    /**
+     * settings.auto-reload
+     */
+    public static final class AutoReload {
+        private final boolean enabled;
+        private final long debounceMs;
+
+        private AutoReload(FileConfiguration config) {
+            this.enabled = config.getBoolean("settings.auto-reload.enabled", true);
+            this.debounceMs = config.getInt("settings.auto-reload.debounce-ms", 500);
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public long getDebounceMs() { return debounceMs; }
+    }
+
+    /**
+     * cache
+     */
+    public static final class Cache {
+        private final int historyMaxPlayers;
+        private final int historyMaxRecords;
+        private final double banFilterFalsePositiveRate;
+
+        private Cache(FileConfiguration config, List<String> problems) {
+            this.historyMaxPlayers = config.getInt("cache.history.max-players", 1000);
+            this.historyMaxRecords = config.getInt("cache.history.max-records", 50000);
+
+            double rate = config.getDouble("cache.ban-filter.false-positive-rate", 0.01);
+            // 0 would size the filter to hundreds of megabytes, 1 or more to a filter that matches everything
+            if (!(rate > 0 && rate <= 0.5)) {
+                problems.add("cache.ban-filter.false-positive-rate must be above 0 and at most 0.5");
+                rate = 0.01;
+            }
+            this.banFilterFalsePositiveRate = rate;
+        }
+
+        public int getHistoryMaxPlayers() { return historyMaxPlayers; }
+        public int getHistoryMaxRecords() { return historyMaxRecords; }
+        public double getBanFilterFalsePositiveRate() { return banFilterFalsePositiveRate; }
+    }
+
+    /**
+     * settings.format in ranks.yml, settings.adminchat and settings.chat
+     */
+    public static final class Chat {
+        private final String format;
+        private final boolean broadcastDirectMessages;
+        private final boolean rateLimitEnabled;
+        private final int burst;
+        private final double refillPerSecond;
+        private final int muteAfter;
+        private final long muteWindow;
+        private final long muteDuration;
+        private final ChatFilter filter;
+
+        private Chat(FileConfiguration config, FileConfiguration ranks, List<String> problems) {
+            String raw = ranks.getString("settings.format.chat", "%prefix% %player%: %message%");
+            if (!raw.contains("%message%")) {
+                problems.add("settings.format.chat in ranks.yml does not contain %message%");
+            }
+            this.format = ConfigUtils.color(raw.replace("%player%", "%1$s").replace("%message%", "%2$s"));
+            this.broadcastDirectMessages = config.getBoolean("settings.adminchat.broadcast-direct-messages", true);
+            
+            this.rateLimitEnabled = config.getBoolean("settings.chat.rate-limit.enabled", true);
+            int configuredBurst = config.getInt("settings.chat.rate-limit.burst", 5);
+            if (configuredBurst < 1 || configuredBurst > TokenBuckets.MAX_BURST) {
+                problems.add("settings.chat.rate-limit.burst must be between 1 and " + TokenBuckets.MAX_BURST);
+                configuredBurst = 5;
+            }
+            this.burst = configuredBurst;
+            double configuredRefill = config.getDouble("settings.chat.rate-limit.refill-per-second", 1.0);
+            if (configuredRefill <= 0) {
+                problems.add("settings.chat.rate-limit.refill-per-second must be above 0");
+                configuredRefill = 1.0;
+            }
+            this.refillPerSecond = configuredRefill;
+            this.muteAfter = config.getInt("settings.chat.rate-limit.mute-after", 10);
+            this.muteWindow = Math.max(1, config.getInt("settings.chat.rate-limit.mute-window", 30)) * 1000L;
+            
+            String duration = config.getString("settings.chat.rate-limit.mute-duration", "5m");
+            long parsed;
+            try {
+                parsed = ConfigUtils.parseDuration(duration);
+            } catch (IllegalArgumentException e) {
+                problems.add("settings.chat.rate-limit.mute-duration is not a duration: " + duration);
+                parsed = 5 * 60 * 1000L;
+            }
+            this.muteDuration = parsed;
+
+            // Compiled here so a reload swaps the filter together with the rest of the settings
+            if (config.getBoolean("settings.chat.filter.enabled", true)) {
+                Map<String, ChatFilter.Action> terms = new LinkedHashMap<>();
+                for (ChatFilter.Action action : ChatFilter.Action.values()) {
+                    for (String term : config.getStringList("settings.chat.filter." + action.name().toLowerCase())) {
+                        ChatFilter.Action previous = terms.put(term, action);
+                        if (previous != null && previous.ordinal() > action.ordinal()) {
+                            terms.put(term, previous);
+                        }
+                    }
+                }
+                this.filter = new ChatFilter(terms);
+            } else {
+                this.filter = ChatFilter.EMPTY;
+            }
+        }
+
+        /**
+         * @return The colored chat format, with %1$s for the player and %2$s for the message
+         *         and %prefix% left to fill in per player
+         */
+        public String getFormat() { return format; }
+        public boolean isBroadcastDirectMessages() { return broadcastDirectMessages; }
+        public boolean isRateLimitEnabled() { return rateLimitEnabled; }
+        public int getBurst() { return burst; }
+        public double getRefillPerSecond() { return refillPerSecond; }
+
+        /**
+         * @return Messages blocked within the mute window before the player is muted, 0 or less to never mute
+         */
+        public int getMuteAfter() { return muteAfter; }
+        public long getMuteWindow() { return muteWindow; }
+        public long getMuteDuration() { return muteDuration; }
+
+        /**
+         * @return The compiled banned terms, empty if the filter is off
+         */
+        public ChatFilter getFilter() { return filter; }
+    }
+}
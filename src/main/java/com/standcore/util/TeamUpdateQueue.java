@@ -0,0 +1,133 @@
+package com.standcore.util;
+
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+import com.standcore.StandCore;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Collects scoreboard team changes and applies them once per tick. Every membership
+ * change sends a packet to every online player, so changes for the same entry within a
+ * tick collapse into the last one, moves to the team an entry is already on are dropped,
+ * and at most a configured number of entries are updated per tick. Main thread only.
+ */
+public class TeamUpdateQueue {
+    private final StandCore plugin;
+    private final Scoreboard scoreboard;
+    private final Map<String, String> pending;
+    private volatile Map<String, Team> teams;
+    private long flushed;
+    private long coalesced;
+    private BukkitTask task;
+
+    public TeamUpdateQueue(StandCore plugin, Scoreboard scoreboard) {
+        this.plugin = plugin;
+        this.scoreboard = scoreboard;
+        this.pending = new LinkedHashMap<>();
+        this.teams = Collections.emptyMap();
+    }
+
+    /**
+     * Starts flushing every tick
+     */
+    public void start() {
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, 1L, 1L);
+    }
+
+    /**
+     * Stops flushing, pending changes are dropped
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Sets the rank teams changes refer to by name
+     * @param teams Team handles by team name
+     */
+    public void setTeams(Map<String, Team> teams) {
+        this.teams = teams;
+    }
+
+    /**
+     * Queues moving an entry onto a team
+     * @param entry The player name
+     * @param teamName The team name, an unknown team takes the entry off its team
+     */
+    public void move(String entry, String teamName) {
+        if (pending.put(entry, teamName) != null) {
+            coalesced++;
+        }
+    }
+
+    /**
+     * Queues taking an entry off its team
+     * @param entry The player name
+     */
+    public void remove(String entry) {
+        if (pending.put(entry, "") != null) {
+            coalesced++;
+        }
+    }
+
+    /**
+     * @return The number of entries waiting for the next flush
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * @return The number of entries updated
+     */
+    public long getFlushed() {
+        return flushed;
+    }
+
+    /**
+     * @return The number of changes replaced by a later one before being sent
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) return;
+
+        int budget = ConfigUtils.getSettings().getTeams().getMaxUpdatesPerTick();
+        Map<String, Team> teams = this.teams;
+        Iterator<Map.Entry<String, String>> it = pending.entrySet().iterator();
+        while (it.hasNext() && budget > 0) {
+            Map.Entry<String, String> change = it.next();
+            it.remove();
+
+            String entry = change.getKey();
+            Team target = teams.get(change.getValue());
+            Team current = scoreboard.getEntryTeam(entry);
+            if (current == null ? target == null : target != null && current.getName().equals(target.getName())) continue;
+
+            try {
+                if (current != null) {
+                    current.removeEntry(entry);
+                }
+                if (target != null) {
+                    target.addEntry(entry);
+                }
+            } catch (IllegalStateException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to update the team of " + entry, e);
+            }
+            flushed++;
+            budget--;
+        }
+    }
+}
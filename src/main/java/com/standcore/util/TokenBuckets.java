@@ -0,0 +1,75 @@
+package com.standcore.util;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets keyed by player, without locks. Each bucket is one long holding the
+ * tokens left in its upper bits, in 1/1024ths of a token, and the time of the last take
+ * in its lower bits, updated with compare-and-set. Burst and refill rate are passed on
+ * every call so they can change without rebuilding the buckets.
+ */
+public class TokenBuckets {
+    public static final int MAX_BURST = 4095;
+
+    private static final int SCALE = 1024;
+    private static final int TIME_BITS = 42;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    private final Map<UUID, AtomicLong> buckets;
+    private final long epoch;
+
+    public TokenBuckets() {
+        this.buckets = new ConcurrentHashMap<>();
+        this.epoch = System.currentTimeMillis();
+    }
+
+    /**
+     * Takes a token from a player's bucket
+     * @param key The player's UUID
+     * @param burst The bucket's size, a new bucket starts full
+     * @param refillPerSecond Tokens added per second
+     * @return 0 if a token was taken, otherwise the milliseconds until one is available
+     */
+    public long tryAcquire(UUID key, int burst, double refillPerSecond) {
+        long now = System.currentTimeMillis() - epoch;
+        long capacity = (long) Math.max(1, Math.min(burst, MAX_BURST)) * SCALE;
+        double refillPerMilli = refillPerSecond * SCALE / 1000.0;
+
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(pack(capacity, now)));
+        }
+
+        while (true) {
+            long state = bucket.get();
+            long elapsed = Math.max(0, now - (state & TIME_MASK));
+            long tokens = Math.min(capacity, (state >>> TIME_BITS) + (long) (elapsed * refillPerMilli));
+
+            if (tokens < SCALE) {
+                return refillPerMilli <= 0 ? Long.MAX_VALUE : (long) Math.ceil((SCALE - tokens) / refillPerMilli);
+            }
+            if (bucket.compareAndSet(state, pack(tokens - SCALE, now))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops a player's bucket
+     * @param key The player's UUID
+     */
+    public void remove(UUID key) {
+        buckets.remove(key);
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+
+    private static long pack(long tokens, long time) {
+        return (tokens << TIME_BITS) | (time & TIME_MASK);
+    }
+}